@@ -0,0 +1,68 @@
+package backend;
+
+/**
+ * Счётчики кеша результатов поиска.
+ */
+public class CacheStatistics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final int size;
+
+    CacheStatistics(long hits, long misses, long evictions, long invalidations, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+    }
+
+    /**
+     * @return сколько запросов обслужено из кеша.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return сколько запросов пришлось считать заново.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return сколько результатов вытеснено из-за нехватки места.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return сколько результатов выброшено, потому что книга с тех пор изменилась.
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return сколько результатов сейчас в кеше.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return доля запросов, обслуженных из кеша.
+     */
+    public double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("попаданий: %d, промахов: %d (%.1f%% попаданий), вытеснено: %d, устарело: %d, в кеше: %d",
+                hits, misses, getHitRate() * 100, evictions, invalidations, size);
+    }
+}
@@ -0,0 +1,400 @@
+package backend;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Хранение контактов одним сжатым файлом.
+ * <p>
+ * Контакты режутся на блоки, каждый блок - отдельно сжатый JSON массив,
+ * поэтому блоки сжимаются при сохранении и распаковываются при открытии параллельно.
+ * В конце файла лежит оглавление: где начинается каждый блок, сколько в нём байтов,
+ * контактов и какая у него контрольная сумма, так что любой блок можно прочитать,
+ * не распаковывая остальные.
+ * <pre>
+ * MAGIC VERSION
+ * блок 0, блок 1, ...
+ * число блоков, для каждого: смещение, длина сжатого, длина несжатого, контактов, CRC32
+ * смещение оглавления, MAGIC
+ * </pre>
+ * При сохранении заново сжимаются только блоки, начиная с первого изменённого контакта:
+ * новые контакты дописываются в конец, так что обычно это последний блок.
+ * Блоки до него копируются из прошлого файла как есть, без разбора и сжатия.
+ * Для этого хранилище помнит контакты и оглавление последнего снимка.
+ * <p>
+ * Такая книжечка выбирается по расширению файла {@link #EXTENSION}.
+ */
+class CompressedStorage implements ContactStorage {
+    /**
+     * Расширение файлов сжатых книжечек.
+     */
+    static final String EXTENSION = ".jsonz";
+
+    private static final int MAGIC = 0x50425a31;
+    private static final int VERSION = 1;
+
+    /**
+     * Сколько контактов в одном блоке.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int BLOCK_ENTRY_BYTES = Long.BYTES + 3 * Integer.BYTES + Long.BYTES;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final File file;
+
+    /**
+     * Контакты последнего прочитанного или сохранённого снимка по порядку.
+     */
+    private Contact[] saved = new Contact[0];
+
+    /**
+     * Оглавление последнего снимка.
+     */
+    private List<Block> savedBlocks = List.of();
+
+    /**
+     * Длина файла последнего снимка, чтобы не копировать блоки из файла, который поменял кто-то другой.
+     */
+    private long savedLength = -1;
+
+    /**
+     * @param file сжатый файл с контактами. Если его нет, он будет создан при сохранении.
+     */
+    CompressedStorage(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Хранить ли книжечку в этом файле сжатой.
+     *
+     * @param file основной файл книжечки.
+     * @return подходит ли расширение.
+     */
+    static boolean accepts(File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    @Override
+    public List<Contact> load() throws IOException {
+        if (!file.isFile() || file.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<Block> blocks = readBlocks(channel);
+            List<Callable<List<Contact>>> tasks = new ArrayList<>();
+            for (var block : blocks) {
+                tasks.add(() -> readBlock(channel, block));
+            }
+
+            List<Contact> contacts = new ArrayList<>();
+            for (var part : tasks.isEmpty() ? List.<List<Contact>>of() : ShardedStorage.runAll(tasks)) {
+                contacts.addAll(part);
+            }
+            remember(contacts, blocks, channel.size());
+            return contacts;
+        }
+    }
+
+    @Override
+    public void added(Contact contact) {
+    }
+
+    @Override
+    public void removed(Contact contact) {
+    }
+
+    @Override
+    public void save(List<Contact> contacts) throws IOException {
+        List<Block> kept = unchangedBlocks(contacts);
+        int from = 0;
+        for (var block : kept) {
+            from += block.contacts;
+        }
+
+        List<Callable<byte[]>> tasks = new ArrayList<>();
+        List<Block> blocks = new ArrayList<>(kept);
+        for (; from < contacts.size(); from += BLOCK_SIZE) {
+            List<Contact> part = contacts.subList(from, Math.min(from + BLOCK_SIZE, contacts.size()));
+            Block block = new Block();
+            block.contacts = part.size();
+            blocks.add(block);
+            tasks.add(() -> compress(part, block));
+        }
+        List<byte[]> compressed = tasks.isEmpty() ? List.of() : ShardedStorage.runAll(tasks);
+
+        File temporary = new File(file.getPath() + ".tmp");
+        long length;
+        try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset;
+            if (kept.isEmpty()) {
+                writeFully(channel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+                offset = HEADER_BYTES;
+            } else {
+                // заголовок и неизменные блоки - одним куском из прошлого файла
+                Block last = kept.get(kept.size() - 1);
+                offset = last.offset + last.compressedLength;
+                try (FileChannel previous = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    transferFully(previous, offset, channel);
+                }
+            }
+
+            for (int i = kept.size(); i < blocks.size(); i++) {
+                byte[] bytes = compressed.get(i - kept.size());
+                blocks.get(i).offset = offset;
+                writeFully(channel, ByteBuffer.wrap(bytes));
+                offset += bytes.length;
+            }
+
+            ByteBuffer footer = ByteBuffer.allocate(Integer.BYTES + blocks.size() * BLOCK_ENTRY_BYTES + TRAILER_BYTES);
+            footer.putInt(blocks.size());
+            for (var block : blocks) {
+                footer.putLong(block.offset).putInt(block.compressedLength).putInt(block.length)
+                        .putInt(block.contacts).putLong(block.crc);
+            }
+            footer.putLong(offset).putInt(MAGIC);
+            writeFully(channel, footer.flip());
+            length = channel.size();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        remember(contacts, blocks, length);
+    }
+
+    @Override
+    public List<Contact> inLoadOrder(List<Contact> contacts) {
+        return contacts;
+    }
+
+    @Override
+    public List<File> files() {
+        return List.of(file);
+    }
+
+    /**
+     * Прочитать один блок, не распаковывая остальные: его место берётся из оглавления.
+     *
+     * @param number номер блока, с нуля.
+     * @return контакты блока или пустой список, если блоков меньше.
+     * @throws IOException если файл испорчен.
+     */
+    List<Contact> readBlock(int number) throws IOException {
+        if (number < 0) {
+            throw new IllegalArgumentException("Номер блока не может быть отрицательным!");
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<Block> blocks = readBlocks(channel);
+            return number < blocks.size() ? readBlock(channel, blocks.get(number)) : new ArrayList<>();
+        }
+    }
+
+    /**
+     * Блоки прошлого снимка, в которых не поменялся ни один контакт и перед которыми
+     * тоже ничего не поменялось. Контакты не меняются на месте, так что достаточно
+     * сравнить ссылки до первого несовпадения.
+     */
+    private List<Block> unchangedBlocks(List<Contact> contacts) {
+        if (savedLength != file.length()) {
+            return List.of();
+        }
+
+        int same = 0;
+        int common = Math.min(saved.length, contacts.size());
+        while (same < common && saved[same] == contacts.get(same)) {
+            same++;
+        }
+
+        int end = 0;
+        int kept = 0;
+        while (kept < savedBlocks.size() && end + savedBlocks.get(kept).contacts <= same) {
+            end += savedBlocks.get(kept).contacts;
+            kept++;
+        }
+        return savedBlocks.subList(0, kept);
+    }
+
+    /**
+     * Запомнить снимок, который сейчас лежит в файле.
+     */
+    private void remember(List<Contact> contacts, List<Block> blocks, long length) {
+        saved = contacts.toArray(new Contact[0]);
+        savedBlocks = blocks;
+        savedLength = length;
+    }
+
+    /**
+     * Сжать блок контактов и запомнить его размеры и контрольную сумму.
+     */
+    private byte[] compress(List<Contact> contacts, Block block) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(contacts);
+        CRC32 crc = new CRC32();
+        crc.update(json);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(json);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            byte[] buffer = new byte[1 << 16];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            block.length = json.length;
+            block.compressedLength = out.size();
+            block.crc = crc.getValue();
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Прочитать и распаковать блок.
+     */
+    private List<Contact> readBlock(FileChannel channel, Block block) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength);
+        readFully(channel, compressed, block.offset);
+
+        byte[] json = new byte[block.length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int filled = 0;
+            while (filled < json.length && !inflater.finished()) {
+                int inflated = inflater.inflate(json, filled, json.length - filled);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                filled += inflated;
+            }
+            if (filled != json.length) {
+                throw new IOException("Блок в файле " + file + " обрывается.");
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Блок в файле " + file + " испорчен.", ex);
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        if (crc.getValue() != block.crc) {
+            throw new IOException("Не сошлась контрольная сумма блока в файле " + file);
+        }
+
+        List<Contact> contacts = mapper.readValue(json, new TypeReference<List<Contact>>() { });
+        if (contacts.size() != block.contacts) {
+            throw new IOException("В блоке файла " + file + " не столько контактов, сколько в оглавлении.");
+        }
+        return contacts;
+    }
+
+    /**
+     * Прочитать оглавление в конце файла.
+     */
+    private List<Block> readBlocks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+        if (size < HEADER_BYTES + Integer.BYTES + TRAILER_BYTES) {
+            throw new IOException("Файл " + file + " слишком короткий для сжатой книжечки.");
+        }
+        readFully(channel, header, 0);
+        readFully(channel, trailer, size - TRAILER_BYTES);
+        long footerOffset = trailer.getLong(0);
+        if (header.getInt(0) != MAGIC || trailer.getInt(Long.BYTES) != MAGIC) {
+            throw new IOException("Файл " + file + " не похож на сжатую книжечку.");
+        }
+        if (header.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Неизвестная версия сжатой книжечки в файле " + file);
+        }
+        if (footerOffset < HEADER_BYTES || footerOffset > size - TRAILER_BYTES - Integer.BYTES) {
+            throw new IOException("Оглавление файла " + file + " испорчено.");
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_BYTES - footerOffset));
+        readFully(channel, footer, footerOffset);
+        footer.flip();
+        int count = footer.getInt();
+        if (count < 0 || footer.remaining() != (long) count * BLOCK_ENTRY_BYTES) {
+            throw new IOException("Оглавление файла " + file + " испорчено.");
+        }
+
+        List<Block> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Block block = new Block();
+            block.offset = footer.getLong();
+            block.compressedLength = footer.getInt();
+            block.length = footer.getInt();
+            block.contacts = footer.getInt();
+            block.crc = footer.getLong();
+            if (block.offset < HEADER_BYTES || block.compressedLength < 0 || block.length < 0
+                    || block.offset + block.compressedLength > footerOffset) {
+                throw new IOException("Оглавление файла " + file + " испорчено.");
+            }
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Файл закончился раньше, чем ожидалось.");
+            }
+        }
+    }
+
+    /**
+     * Скопировать начало файла до заданного места в другой файл.
+     */
+    private static void transferFully(FileChannel from, long length, FileChannel to) throws IOException {
+        long position = 0;
+        while (position < length) {
+            long transferred = from.transferTo(position, length - position, to);
+            if (transferred <= 0) {
+                throw new IOException("Файл закончился раньше, чем ожидалось.");
+            }
+            position += transferred;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Запись оглавления о блоке.
+     */
+    private static class Block {
+        long offset;
+        int compressedLength;
+        int length;
+        int contacts;
+        long crc;
+    }
+}
@@ -1,5 +1,9 @@
 package backend;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -77,6 +81,42 @@ public class Contact {
         this.email = FormatDataChecker.makeNotBlank(email);
     }
 
+    /**
+     * Собрать контакт из JSON файла книжечки.
+     * Дата рождения там хранится строкой, чтобы не тащить модули для java.time.
+     */
+    @JsonCreator
+    private static Contact fromJson(@JsonProperty("name") String name,
+                                    @JsonProperty("surname") String surname,
+                                    @JsonProperty("patronymic") String patronymic,
+                                    @JsonProperty("address") String address,
+                                    @JsonProperty("phoneNumbers") List<String> phoneNumbers,
+                                    @JsonProperty("birthday") String birthday,
+                                    @JsonProperty("email") String email) {
+        birthday = FormatDataChecker.makeNotBlank(birthday);
+        return new Contact(name, surname, patronymic, address, phoneNumbers,
+                birthday.isEmpty() ? null : LocalDate.parse(birthday), email);
+    }
+
+    /**
+     * Ключ ФИО, по которому книжечка отличает дубликаты.
+     * @return фамилия, имя и отчество через нулевой символ.
+     */
+    String fullNameKey() {
+        return fullNameKey(name, surname, patronymic);
+    }
+
+    /**
+     * Ключ ФИО для уже обрезанных от пробелов имени, фамилии и отчества.
+     * @param name имя.
+     * @param surname фамилия.
+     * @param patronymic отчество.
+     * @return фамилия, имя и отчество через нулевой символ.
+     */
+    static String fullNameKey(String name, String surname, String patronymic) {
+        return surname + '\0' + name + '\0' + patronymic;
+    }
+
     /**
      * Получить извне номера телефонов так,
      * чтобы внутри контакта их случайно не поменять.
@@ -90,10 +130,20 @@ public class Contact {
      * Получить дату рождения.
      * @return опшионал с датой рождения.
      */
+    @JsonIgnore
     public Optional<LocalDate> getBirthday() {
         return birthday;
     }
 
+    /**
+     * Дата рождения для JSON файла книжечки.
+     * @return дата в формате ГГГГ-ММ-ДД или null.
+     */
+    @JsonProperty("birthday")
+    private String getBirthdayForJson() {
+        return birthday.map(LocalDate::toString).orElse(null);
+    }
+
     /**
      * Получить адрес.
      * @return адрес.
@@ -0,0 +1,90 @@
+package backend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Потоковая выгрузка контактов в файл.
+ * Контакты режутся на куски, куски кодируются параллельно в общем fork-join пуле,
+ * а готовые байты пишутся в файл строго по порядку через один канал.
+ * Одновременно в работе держится ограниченное число кусков,
+ * так что память не растёт вместе с размером книги.
+ */
+class ContactExporter {
+    /**
+     * Сколько контактов кодируется одной задачей.
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    private ContactExporter() {
+    }
+
+    /**
+     * Выгрузить контакты в файл.
+     *
+     * @param contacts контакты. Список не копируется, поэтому его нельзя менять во время выгрузки.
+     * @param path     путь к файлу выгрузки. Существующий файл перезаписывается.
+     * @param format   формат выгрузки.
+     * @return число выгруженных контактов.
+     * @throws IOException при ошибке записи.
+     */
+    static int export(List<Contact> contacts, Path path, ExportFormat format) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<ForkJoinTask<ByteBuffer>> inFlight = new ArrayDeque<>();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, StandardCharsets.UTF_8.encode(format.header()));
+            for (int from = 0; from < contacts.size(); from += CHUNK_SIZE) {
+                List<Contact> chunk = contacts.subList(from, Math.min(from + CHUNK_SIZE, contacts.size()));
+                inFlight.addLast(pool.submit(() -> encode(chunk, format)));
+                if (inFlight.size() >= window) {
+                    write(channel, inFlight.removeFirst().join());
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                write(channel, inFlight.removeFirst().join());
+            }
+        } finally {
+            inFlight.forEach(task -> task.cancel(true));
+        }
+
+        return contacts.size();
+    }
+
+    /**
+     * Закодировать кусок контактов в байты.
+     *
+     * @param chunk  кусок контактов.
+     * @param format формат.
+     * @return буфер с закодированным куском.
+     */
+    private static ByteBuffer encode(List<Contact> chunk, ExportFormat format) {
+        StringBuilder out = new StringBuilder(chunk.size() * 128);
+        for (var contact : chunk) {
+            format.encode(contact, out);
+        }
+
+        return StandardCharsets.UTF_8.encode(out.toString());
+    }
+
+    /**
+     * Записать буфер в канал целиком.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
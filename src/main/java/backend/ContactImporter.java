@@ -0,0 +1,442 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Параллельный разбор файлов с контактами.
+ * Файл режется на диапазоны байтов по границам записей,
+ * каждый диапазон читается, разбирается и проверяется отдельной задачей
+ * в общем fork-join пуле. Проверка дубликатов остаётся книжечке.
+ */
+class ContactImporter {
+    /**
+     * Диапазоны меньше этого не имеет смысла разбирать отдельно.
+     */
+    static final int MIN_RANGE_SIZE = 1 << 20;
+
+    /**
+     * Диапазон должен влезать в один массив байтов.
+     */
+    static final int MAX_RANGE_SIZE = 1 << 30;
+
+    /**
+     * Размер окна, которым ищется граница записи.
+     */
+    private static final int SEARCH_WINDOW = 1 << 16;
+
+    private static final byte[] CSV_RECORD_START = {'\n'};
+    private static final byte[] VCARD_RECORD_START = "\nBEGIN:VCARD".getBytes(StandardCharsets.US_ASCII);
+
+    private ContactImporter() {
+    }
+
+    /**
+     * Разобранный контакт вместе с номером строки, где он начинался.
+     */
+    static class Row {
+        final long line;
+        final Contact contact;
+
+        Row(long line, Contact contact) {
+            this.line = line;
+            this.contact = contact;
+        }
+    }
+
+    /**
+     * Итог разбора файла: принятые контакты по порядку и отчёт с отвергнутыми строками.
+     */
+    static class Result {
+        final List<Row> rows = new ArrayList<>();
+        final ImportReport report = new ImportReport();
+    }
+
+    /**
+     * Итог разбора одного диапазона. Номера строк в нём считаются от начала диапазона.
+     */
+    private static class Chunk {
+        final List<Row> rows = new ArrayList<>();
+        final ImportReport report = new ImportReport();
+        long lineCount;
+    }
+
+    /**
+     * Разобрать файл с контактами.
+     *
+     * @param path   путь к файлу.
+     * @param format формат файла.
+     * @return принятые контакты и отчёт.
+     * @throws IOException при ошибке чтения.
+     */
+    static Result parse(Path path, ExportFormat format) throws IOException {
+        Result result = new Result();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<Long> bounds = split(channel, format);
+            List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.size(); i++) {
+                long from = bounds.get(i);
+                long to = bounds.get(i + 1);
+                boolean first = i == 0;
+                tasks.add(ForkJoinPool.commonPool().submit(() -> parseRange(channel, from, to, format, first)));
+            }
+
+            long linesBefore = 0;
+            for (var task : tasks) {
+                Chunk chunk = join(task);
+                for (var row : chunk.rows) {
+                    result.rows.add(new Row(linesBefore + row.line, row.contact));
+                }
+                for (var rejected : chunk.report.getRejectedRows()) {
+                    result.report.reject(linesBefore + rejected.getLine(), rejected.getReason(), rejected.getText());
+                }
+                linesBefore += chunk.lineCount;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Найти границы диапазонов. Каждая граница - начало записи.
+     */
+    private static List<Long> split(FileChannel channel, ExportFormat format) throws IOException {
+        long size = channel.size();
+        long count = Math.min(ForkJoinPool.commonPool().getParallelism() * 4L, size / MIN_RANGE_SIZE);
+        count = Math.max(count, size / MAX_RANGE_SIZE * 2 + 1);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        for (long i = 1; i < count; i++) {
+            long bound = nextRecordStart(channel, size * i / count, format);
+            if (bound > bounds.get(bounds.size() - 1) && bound < size) {
+                bounds.add(bound);
+            }
+        }
+        bounds.add(size);
+        return bounds;
+    }
+
+    /**
+     * Найти начало первой записи не раньше указанной позиции.
+     */
+    private static long nextRecordStart(FileChannel channel, long position, ExportFormat format)
+            throws IOException {
+        byte[] pattern = format == ExportFormat.CSV ? CSV_RECORD_START : VCARD_RECORD_START;
+        ByteBuffer window = ByteBuffer.allocate(SEARCH_WINDOW);
+        position = Math.max(0, position - 1);
+        while (true) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read < pattern.length) {
+                return channel.size();
+            }
+
+            byte[] bytes = window.array();
+            for (int i = 0; i + pattern.length <= read; i++) {
+                int matched = 0;
+                while (matched < pattern.length && bytes[i + matched] == pattern[matched]) {
+                    matched++;
+                }
+                if (matched == pattern.length) {
+                    return position + i + 1;
+                }
+            }
+            position += read - pattern.length + 1;
+        }
+    }
+
+    /**
+     * Прочитать и разобрать один диапазон файла.
+     */
+    private static Chunk parseRange(FileChannel channel, long from, long to, ExportFormat format, boolean first) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(to - from));
+        try {
+            while (buffer.hasRemaining() && channel.read(buffer, from + buffer.position()) >= 0) {
+                // читаем диапазон целиком
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        buffer.flip();
+
+        String[] lines = StandardCharsets.UTF_8.decode(buffer).toString().split("\n", -1);
+        Chunk chunk = new Chunk();
+        chunk.lineCount = lines.length - 1;
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].endsWith("\r")) {
+                lines[i] = lines[i].substring(0, lines[i].length() - 1);
+            }
+        }
+
+        if (format == ExportFormat.CSV) {
+            parseCsv(lines, first, chunk);
+        } else {
+            parseVCards(lines, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Разобрать строки CSV в том виде, в котором их пишет {@link ExportFormat#CSV}.
+     */
+    private static void parseCsv(String[] lines, boolean first, Chunk chunk) {
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.isBlank() || (first && i == 0 && line.startsWith("surname,"))) {
+                continue;
+            }
+
+            List<String> fields = splitCsvLine(line);
+            if (fields.size() != 7) {
+                chunk.report.reject(i + 1, "ожидалось 7 полей, а не " + fields.size(), line);
+                continue;
+            }
+
+            List<String> phones = new ArrayList<>();
+            for (var phone : fields.get(4).split(";")) {
+                if (!phone.isBlank()) {
+                    phones.add(phone.trim());
+                }
+            }
+
+            try {
+                chunk.rows.add(new Row(i + 1, toContact(fields.get(1), fields.get(0), fields.get(2),
+                        fields.get(3), phones, fields.get(5), fields.get(6))));
+            } catch (IllegalArgumentException ex) {
+                chunk.report.reject(i + 1, ex.getMessage(), line);
+            }
+        }
+    }
+
+    /**
+     * Разрезать строку CSV на поля с учётом кавычек.
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Разобрать карточки vCard. Поддерживаются свойства N, FN, TEL, ADR, BDAY и EMAIL.
+     */
+    private static void parseVCards(String[] lines, Chunk chunk) {
+        List<String> card = null;
+        int cardLine = 0;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.equalsIgnoreCase("BEGIN:VCARD")) {
+                card = new ArrayList<>();
+                cardLine = i + 1;
+            } else if (card == null) {
+                continue;
+            } else if (line.equalsIgnoreCase("END:VCARD")) {
+                try {
+                    chunk.rows.add(new Row(cardLine, vCardToContact(card)));
+                } catch (IllegalArgumentException ex) {
+                    chunk.report.reject(cardLine, ex.getMessage(), card.isEmpty() ? "" : card.get(0));
+                }
+                card = null;
+            } else if ((line.startsWith(" ") || line.startsWith("\t")) && !card.isEmpty()) {
+                card.set(card.size() - 1, card.get(card.size() - 1) + line.substring(1));
+            } else if (!line.isEmpty()) {
+                card.add(line);
+            }
+        }
+
+        if (card != null) {
+            chunk.report.reject(cardLine, "карточка не закончена", card.isEmpty() ? "" : card.get(0));
+        }
+    }
+
+    /**
+     * Собрать контакт из свойств одной карточки.
+     */
+    private static Contact vCardToContact(List<String> card) {
+        String surname = "";
+        String name = "";
+        String patronymic = "";
+        String fullName = "";
+        String address = "";
+        String birthday = "";
+        String email = "";
+        List<String> phones = new ArrayList<>();
+
+        for (var property : card) {
+            int colon = property.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+
+            String key = property.substring(0, colon).split(";", 2)[0].toUpperCase();
+            key = key.substring(key.indexOf('.') + 1);
+            String value = property.substring(colon + 1);
+            switch (key) {
+                case "N":
+                    List<String> parts = splitVCardValue(value);
+                    surname = parts.size() > 0 ? parts.get(0) : "";
+                    name = parts.size() > 1 ? parts.get(1) : "";
+                    patronymic = parts.size() > 2 ? parts.get(2) : "";
+                    break;
+                case "FN":
+                    fullName = unescapeVCard(value);
+                    break;
+                case "TEL":
+                    phones.add(unescapeVCard(value));
+                    break;
+                case "ADR":
+                    List<String> lines = new ArrayList<>();
+                    for (var part : splitVCardValue(value)) {
+                        if (!part.isBlank()) {
+                            lines.add(part.trim());
+                        }
+                    }
+                    address = String.join(", ", lines);
+                    break;
+                case "BDAY":
+                    birthday = value.split("T", 2)[0];
+                    break;
+                case "EMAIL":
+                    if (email.isEmpty()) {
+                        email = unescapeVCard(value);
+                    }
+                    break;
+                default:
+            }
+        }
+
+        if (surname.isBlank() && name.isBlank() && patronymic.isBlank()) {
+            name = fullName;
+        }
+        return toContact(name, surname, patronymic, address, phones, birthday, email);
+    }
+
+    /**
+     * Разрезать составное значение vCard по неэкранированным точкам с запятой.
+     */
+    private static List<String> splitVCardValue(String value) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '\\') {
+                i++;
+            } else if (value.charAt(i) == ';') {
+                parts.add(unescapeVCard(value.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        parts.add(unescapeVCard(value.substring(start)));
+        return parts;
+    }
+
+    /**
+     * Снять экранирование с текстового значения vCard.
+     */
+    private static String unescapeVCard(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Проверить поля и собрать контакт.
+     *
+     * @throws IllegalArgumentException с причиной, если поля не годятся.
+     */
+    private static Contact toContact(String name, String surname, String patronymic, String address,
+                                     List<String> phones, String birthday, String email) {
+        if (name.isBlank() && surname.isBlank() && patronymic.isBlank()) {
+            throw new IllegalArgumentException("пустое ФИО");
+        }
+
+        for (var phone : phones) {
+            if (!FormatDataChecker.isPhoneNumber(phone)) {
+                throw new IllegalArgumentException("неверный номер телефона " + phone);
+            }
+        }
+
+        email = FormatDataChecker.makeNotBlank(email);
+        if (!email.isEmpty() && !FormatDataChecker.isEmail(email)) {
+            throw new IllegalArgumentException("неверный е-мэйл " + email);
+        }
+
+        return new Contact(name, surname, patronymic, address, phones, parseDate(birthday), email);
+    }
+
+    /**
+     * Разобрать дату рождения в формате 2000-12-31 или 20001231.
+     */
+    private static LocalDate parseDate(String text) {
+        text = FormatDataChecker.makeNotBlank(text);
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return text.length() == 8
+                    ? LocalDate.parse(text, DateTimeFormatter.BASIC_ISO_DATE)
+                    : LocalDate.parse(text);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("неверная дата рождения " + text);
+        }
+    }
+
+    /**
+     * Дождаться задачи и вернуть ошибку ввода-вывода, если задача на ней упала.
+     */
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (RuntimeException ex) {
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package backend;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static backend.FormatDataChecker.transformStringForSearch;
+
+/**
+ * Поисковые индексы книжечки: по началу ФИО, по началу номера телефона, по дню рождения
+ * и по последним цифрам номера, чтобы узнавать, кто звонит.
+ * <p>
+ * ФИО лежит в индексе в нескольких написаниях: как записано, несколькими латинскими
+ * ({@link Transliteration}) и кириллицей, а запрос ищется по индексу как есть, без перевода.
+ * Так записанный кириллицей контакт находится и по запросу латиницей. Обратный перевод
+ * латиницы - только догадка, и записанную латиницей Maria Ivanova запрос «иванова мария» не найдёт.
+ * <p>
+ * Индексы можно сохранить в файл рядом с книжечкой. В файле записан штамп снимка
+ * книжечки, для которого индексы построены, и при следующем открытии они читаются
+ * из файла только если снимок с тех пор не менялся. Файл читается в память целиком,
+ * обычным чтением, и деревья собираются из готовых ключей без нормализации и перевода ФИО.
+ * Это в несколько раз быстрее построения, но всё равно растёт с числом контактов,
+ * как и чтение самого снимка. Контакты в файле хранятся
+ * номерами в порядке загрузки снимка, а для проверки рядом лежит хеш ФИО каждого контакта:
+ * если хоть один не совпал с прочитанным снимком, индексы строятся заново.
+ */
+class ContactIndex {
+    private static final int MAGIC = 0x50424958;
+    private static final int VERSION = 4;
+
+    /**
+     * Сколько последних цифр номера хватает, чтобы узнать звонящего.
+     * Номер абонента без кода города и страны занимает как раз столько.
+     */
+    static final int CALLER_ID_DIGITS = 7;
+
+    /**
+     * Сколько последних цифр сравнивается, если они есть у обоих номеров:
+     * код города и номер абонента без кода страны и выхода на межгород.
+     */
+    static final int NATIONAL_DIGITS = 10;
+
+    private final NavigableMap<String, List<Contact>> byFullName = new TreeMap<>();
+    private final NavigableMap<String, List<Contact>> byPhone = new TreeMap<>();
+    private final Map<LocalDate, List<Contact>> byBirthday = new HashMap<>();
+
+    /**
+     * Контакты по последним цифрам номера, упакованным в число.
+     * Строится из индекса телефонов и в файл не пишется.
+     */
+    private final Map<Long, List<Contact>> byCallerId = new HashMap<>();
+
+    /**
+     * Файл индексов для книжечки.
+     *
+     * @param book основной файл книжечки.
+     * @return файл индексов рядом с ним.
+     */
+    static File fileFor(File book) {
+        return new File(book.getPath() + ".idx");
+    }
+
+    /**
+     * Построить индексы по контактам.
+     *
+     * @param contacts контакты.
+     * @return индексы.
+     */
+    static ContactIndex build(List<Contact> contacts) {
+        ContactIndex index = new ContactIndex();
+        for (var contact : contacts) {
+            index.add(contact);
+        }
+        return index;
+    }
+
+    /**
+     * Ключи контакта в индексе ФИО: как записано, всеми написаниями латиницей и кириллицей, без повторов.
+     * Части ФИО переводятся по отдельности, чтобы буквы на стыке не сложились в одну.
+     */
+    static Set<String> fullNameKeys(Contact contact) {
+        String[] parts = {
+                transformStringForSearch(contact.getSurname()),
+                transformStringForSearch(contact.getName()),
+                transformStringForSearch(contact.getPatronymic())
+        };
+
+        StringBuilder[] latin = new StringBuilder[Transliteration.LATIN_SPELLINGS];
+        for (int i = 0; i < latin.length; i++) {
+            latin[i] = new StringBuilder();
+        }
+        StringBuilder cyrillic = new StringBuilder();
+        for (var part : parts) {
+            List<String> spellings = Transliteration.toLatinSpellings(part);
+            for (int i = 0; i < latin.length; i++) {
+                latin[i].append(spellings.get(i));
+            }
+            cyrillic.append(Transliteration.toCyrillic(part));
+        }
+
+        Set<String> keys = new LinkedHashSet<>(8);
+        keys.add(parts[0] + parts[1] + parts[2]);
+        for (var spelling : latin) {
+            keys.add(spelling.toString());
+        }
+        keys.add(cyrillic.toString());
+        return keys;
+    }
+
+    /**
+     * Добавить контакт в индексы.
+     */
+    void add(Contact contact) {
+        for (var name : fullNameKeys(contact)) {
+            byFullName.computeIfAbsent(name, key -> new ArrayList<>()).add(contact);
+        }
+        for (var phone : phoneKeys(contact)) {
+            byPhone.computeIfAbsent(phone, key -> new ArrayList<>()).add(contact);
+            addCallerId(phone, contact);
+        }
+        contact.getBirthday().ifPresent(date ->
+                byBirthday.computeIfAbsent(date, key -> new ArrayList<>()).add(contact));
+    }
+
+    /**
+     * Убрать контакт из индексов.
+     */
+    void remove(Contact contact) {
+        for (var name : fullNameKeys(contact)) {
+            removeFrom(byFullName, name, contact);
+        }
+        for (var phone : phoneKeys(contact)) {
+            removeFrom(byPhone, phone, contact);
+            long suffix = callerIdKey(phone);
+            if (suffix >= 0) {
+                removeFrom(byCallerId, suffix, contact);
+            }
+        }
+        contact.getBirthday().ifPresent(date -> removeFrom(byBirthday, date, contact));
+    }
+
+    /**
+     * Найти контакты по началу нормализованного ФИО.
+     */
+    List<Contact> findByFullName(String prefix) {
+        return collect(withPrefix(byFullName, prefix).values());
+    }
+
+    /**
+     * Найти контакты по началу нормализованного номера телефона.
+     */
+    List<Contact> findByPhoneNumber(String prefix) {
+        return collect(withPrefix(byPhone, prefix).values());
+    }
+
+    /**
+     * Пары ключ-контакт индекса ФИО, где ключ начинается с префикса.
+     * С ограничением перебор останавливается на контакте номер limit + 1,
+     * так что по числу разных контактов видно, все ли пары собраны.
+     *
+     * @param limit сколько разных контактов нужно, 0 - все.
+     */
+    List<Posting> fullNamePostings(String prefix, int limit) {
+        return postings(withPrefix(byFullName, prefix), limit);
+    }
+
+    /**
+     * Пары ключ-контакт индекса телефонов, где ключ начинается с префикса.
+     * Ограничение - как в {@link #fullNamePostings(String, int)}.
+     *
+     * @param limit сколько разных контактов нужно, 0 - все.
+     */
+    List<Posting> phonePostings(String prefix, int limit) {
+        return postings(withPrefix(byPhone, prefix), limit);
+    }
+
+    /**
+     * Узнать, кто звонит.
+     * Номера сравниваются с конца, так что неважно, с каким кодом страны
+     * или выходом на межгород записан номер в книжечке и пришёл звонок.
+     * Кандидаты берутся по последним семи цифрам, а если у обоих номеров
+     * есть код города, он тоже должен совпасть.
+     *
+     * @param callerId номер звонящего в любом формате.
+     * @return контакты с таким номером.
+     */
+    List<Contact> findByCallerId(String callerId) {
+        String digits = digitsOf(callerId);
+        long suffix = callerIdKey(digits);
+        if (suffix < 0) {
+            return new ArrayList<>();
+        }
+
+        Set<Contact> found = new LinkedHashSet<>();
+        for (var contact : byCallerId.getOrDefault(suffix, List.of())) {
+            for (var phone : contact.getPhoneNumbers()) {
+                if (sameNumber(digitsOf(phone), digits)) {
+                    found.add(contact);
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Найти контакты по дню рождения.
+     */
+    List<Contact> findByBirthday(LocalDate date) {
+        return new ArrayList<>(byBirthday.getOrDefault(date, List.of()));
+    }
+
+    /**
+     * Посчитать штамп снимка книжечки: контрольную сумму содержимого его файлов.
+     *
+     * @param files файлы снимка.
+     * @return штамп.
+     * @throws IOException при ошибке чтения.
+     */
+    static long stamp(List<File> files) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (var file : files) {
+            if (!file.exists()) {
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, channel.size()));
+                buffer.clear();
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    crc.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Сохранить индексы в файл.
+     *
+     * @param file     файл индексов.
+     * @param stamp    штамп снимка, для которого построены индексы.
+     * @param contacts контакты в том порядке, в каком их вернёт загрузка снимка.
+     * @throws IOException при ошибке записи.
+     */
+    void write(File file, long stamp, List<Contact> contacts) throws IOException {
+        Map<Contact, Integer> ordinals = new IdentityHashMap<>(contacts.size());
+        for (int i = 0; i < contacts.size(); i++) {
+            ordinals.put(contacts.get(i), i);
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temporary.toPath()), 1 << 16)) {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp);
+            out.writeInt(contacts.size());
+
+            DataOutputStream body = new DataOutputStream(new CheckedOutputStream(stream, crc));
+            for (var contact : contacts) {
+                body.writeInt(contact.fullNameKey().hashCode());
+            }
+            writeStrings(body, byFullName, ordinals);
+            writeStrings(body, byPhone, ordinals);
+            body.writeInt(byBirthday.size());
+            for (var entry : byBirthday.entrySet()) {
+                body.writeLong(entry.getKey().toEpochDay());
+                writeOrdinals(body, entry.getValue(), ordinals);
+            }
+            body.flush();
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Прочитать индексы из файла, если они построены для того же снимка.
+     *
+     * @param file     файл индексов.
+     * @param stamp    штамп текущего снимка.
+     * @param contacts контакты в порядке снимка.
+     * @return индексы или null, если файла нет, он испорчен или устарел.
+     * @throws IOException при ошибке чтения.
+     */
+    static ContactIndex read(File file, long stamp, List<Contact> contacts) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // читаем файл целиком
+            }
+            buffer.flip();
+        } catch (ArithmeticException ex) {
+            return null;
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != stamp || buffer.getInt() != contacts.size()) {
+                return null;
+            }
+
+            ByteBuffer body = buffer.slice();
+            body.limit(body.limit() - Long.BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if (crc.getValue() != buffer.getLong(buffer.limit() - Long.BYTES)) {
+                return null;
+            }
+
+            for (var contact : contacts) {
+                if (body.getInt() != contact.fullNameKey().hashCode()) {
+                    return null;
+                }
+            }
+
+            ContactIndex index = new ContactIndex();
+            readStrings(body, index.byFullName, contacts);
+            readStrings(body, index.byPhone, contacts);
+            for (var entry : index.byPhone.entrySet()) {
+                for (var contact : entry.getValue()) {
+                    index.addCallerId(entry.getKey(), contact);
+                }
+            }
+            int dates = body.getInt();
+            for (int i = 0; i < dates; i++) {
+                index.byBirthday.put(LocalDate.ofEpochDay(body.getLong()), readOrdinals(body, contacts));
+            }
+            return index;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, NavigableMap<String, List<Contact>> map,
+                                     Map<Contact, Integer> ordinals) throws IOException {
+        out.writeInt(map.size());
+        for (var entry : map.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(key.length);
+            out.write(key);
+            writeOrdinals(out, entry.getValue(), ordinals);
+        }
+    }
+
+    private static void writeOrdinals(DataOutputStream out, List<Contact> postings,
+                                      Map<Contact, Integer> ordinals) throws IOException {
+        out.writeInt(postings.size());
+        for (var contact : postings) {
+            out.writeInt(ordinals.get(contact));
+        }
+    }
+
+    private static void readStrings(ByteBuffer in, NavigableMap<String, List<Contact>> map,
+                                    List<Contact> contacts) {
+        int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            byte[] key = new byte[in.getInt()];
+            in.get(key);
+            map.put(new String(key, StandardCharsets.UTF_8), readOrdinals(in, contacts));
+        }
+    }
+
+    private static List<Contact> readOrdinals(ByteBuffer in, List<Contact> contacts) {
+        int size = in.getInt();
+        List<Contact> postings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            postings.add(contacts.get(in.getInt()));
+        }
+        return postings;
+    }
+
+    /**
+     * Нормализованные номера телефонов контакта без повторов.
+     */
+    private static Set<String> phoneKeys(Contact contact) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (var phone : contact.getPhoneNumbers()) {
+            keys.add(transformStringForSearch(phone));
+        }
+        return keys;
+    }
+
+    private void addCallerId(String phone, Contact contact) {
+        long suffix = callerIdKey(phone);
+        if (suffix >= 0) {
+            byCallerId.computeIfAbsent(suffix, key -> new ArrayList<>()).add(contact);
+        }
+    }
+
+    /**
+     * Последние цифры номера, упакованные в число.
+     *
+     * @param phone номер в любом формате.
+     * @return ключ индекса звонящих или -1, если цифр в номере слишком мало.
+     */
+    private static long callerIdKey(String phone) {
+        String digits = digitsOf(phone);
+        if (digits.length() < CALLER_ID_DIGITS) {
+            return -1;
+        }
+        return Long.parseLong(digits.substring(digits.length() - CALLER_ID_DIGITS));
+    }
+
+    /**
+     * Совпадают ли номера по стольким последним цифрам, сколько есть у обоих,
+     * но не больше, чем в номере без кода страны.
+     */
+    private static boolean sameNumber(String first, String second) {
+        int length = Math.min(NATIONAL_DIGITS, Math.min(first.length(), second.length()));
+        return length >= CALLER_ID_DIGITS
+                && first.regionMatches(first.length() - length, second, second.length() - length, length);
+    }
+
+    /**
+     * Только цифры номера.
+     */
+    private static String digitsOf(String phone) {
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Все ключи, начинающиеся с префикса.
+     */
+    private static NavigableMap<String, List<Contact>> withPrefix(NavigableMap<String, List<Contact>> map,
+                                                                  String prefix) {
+        return prefix.isEmpty() ? map : map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Развернуть часть индекса в пары ключ-контакт.
+     * Ключи перебираются по порядку и только пока не набралось limit + 1 разных контактов.
+     */
+    private static List<Posting> postings(NavigableMap<String, List<Contact>> map, int limit) {
+        List<Posting> postings = new ArrayList<>();
+        Set<Contact> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (var entry : map.entrySet()) {
+            for (var contact : entry.getValue()) {
+                postings.add(new Posting(entry.getKey(), contact));
+                if (limit > 0 && seen.add(contact) && seen.size() > limit) {
+                    return postings;
+                }
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * Собрать контакты из нескольких списков без повторов.
+     */
+    private static List<Contact> collect(Collection<List<Contact>> postings) {
+        Set<Contact> found = new LinkedHashSet<>();
+        for (var list : postings) {
+            found.addAll(list);
+        }
+        return new ArrayList<>(found);
+    }
+
+    private static <K> void removeFrom(Map<K, List<Contact>> map, K key, Contact contact) {
+        List<Contact> postings = map.get(key);
+        if (Objects.isNull(postings)) {
+            return;
+        }
+
+        postings.remove(contact);
+        if (postings.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * Ключ индекса вместе с контактом, который по нему лежит.
+     */
+    static class Posting {
+        final String key;
+        final Contact contact;
+
+        Posting(String key, Contact contact) {
+            this.key = key;
+            this.contact = contact;
+        }
+    }
+}
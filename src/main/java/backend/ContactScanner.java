@@ -0,0 +1,141 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Перебор контактов с условием.
+ * Маленькие книги перебираются в одном потоке, большие режутся на куски
+ * подряд идущих контактов, и куски проверяются в общем fork-join пуле.
+ * Если задано ограничение на число результатов, перебор останавливается,
+ * как только нужное число контактов найдено.
+ */
+class ContactScanner {
+    /**
+     * Сколько подряд идущих контактов проверяет одна задача.
+     */
+    static final int CHUNK_SIZE = 2048;
+
+    /**
+     * С какого размера книги перебор идёт параллельно.
+     */
+    static final int PARALLEL_THRESHOLD = 16 * CHUNK_SIZE;
+
+    /**
+     * Как часто задача проверяет, не пора ли остановиться.
+     */
+    private static final int STOP_CHECK_INTERVAL = 256;
+
+    private ContactScanner() {
+    }
+
+    /**
+     * Перебрать контакты.
+     *
+     * @param contacts  контакты. Список нельзя менять во время перебора.
+     * @param condition условие.
+     * @param limit     сколько контактов достаточно найти, 0 - все.
+     *                  При параллельном переборе с ограничением возвращаются
+     *                  первые найденные, а не обязательно первые по порядку книги.
+     * @return найденные контакты и статистика.
+     */
+    static ScanResult scan(List<Contact> contacts, Predicate<Contact> condition, int limit) {
+        long start = System.nanoTime();
+        int chunks = (contacts.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        if (contacts.size() < PARALLEL_THRESHOLD) {
+            List<Contact> found = new ArrayList<>();
+            int scanned = 0;
+            for (var contact : contacts) {
+                scanned++;
+                if (condition.test(contact)) {
+                    found.add(contact);
+                    if (limit > 0 && found.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return new ScanResult(found, scanned, 1, false,
+                    scanned < contacts.size(), System.nanoTime() - start);
+        }
+
+        ScanTask task = new ScanTask(contacts, condition, limit, 0, chunks);
+        List<Contact> found = ForkJoinPool.commonPool().invoke(task);
+        if (limit > 0 && found.size() > limit) {
+            found = new ArrayList<>(found.subList(0, limit));
+        }
+
+        long scanned = task.scanned.sum();
+        return new ScanResult(found, scanned, chunks, true,
+                scanned < contacts.size(), System.nanoTime() - start);
+    }
+
+    /**
+     * Задача перебора диапазона кусков.
+     * Общие для всех подзадач счётчики живут в корневой задаче.
+     */
+    private static class ScanTask extends RecursiveTask<List<Contact>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Contact> contacts;
+        private final Predicate<Contact> condition;
+        private final int limit;
+        private final int fromChunk;
+        private final int toChunk;
+        private final AtomicInteger found;
+        private final LongAdder scanned;
+
+        ScanTask(List<Contact> contacts, Predicate<Contact> condition, int limit, int fromChunk, int toChunk) {
+            this(contacts, condition, limit, fromChunk, toChunk, new AtomicInteger(), new LongAdder());
+        }
+
+        private ScanTask(List<Contact> contacts, Predicate<Contact> condition, int limit,
+                         int fromChunk, int toChunk, AtomicInteger found, LongAdder scanned) {
+            this.contacts = contacts;
+            this.condition = condition;
+            this.limit = limit;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.found = found;
+            this.scanned = scanned;
+        }
+
+        @Override
+        protected List<Contact> compute() {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+                ScanTask left = new ScanTask(contacts, condition, limit, fromChunk, middle, found, scanned);
+                ScanTask right = new ScanTask(contacts, condition, limit, middle, toChunk, found, scanned);
+                right.fork();
+                List<Contact> result = left.compute();
+                result.addAll(right.join());
+                return result;
+            }
+
+            List<Contact> result = new ArrayList<>();
+            int from = fromChunk * CHUNK_SIZE;
+            int to = Math.min(from + CHUNK_SIZE, contacts.size());
+            int i = from;
+            for (; i < to; i++) {
+                if (limit > 0 && (i - from) % STOP_CHECK_INTERVAL == 0 && found.get() >= limit) {
+                    break;
+                }
+
+                Contact contact = contacts.get(i);
+                if (condition.test(contact)) {
+                    result.add(contact);
+                    if (limit > 0) {
+                        found.incrementAndGet();
+                    }
+                }
+            }
+            scanned.add(i - from);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package backend;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Место, где книжечка хранит свои контакты между запусками.
+ * Книжечка сообщает хранилищу о каждом изменении,
+ * чтобы оно могло переписать только то, что действительно поменялось.
+ */
+interface ContactStorage {
+    /**
+     * Прочитать все контакты.
+     *
+     * @return контакты книжечки.
+     * @throws IOException при ошибке чтения.
+     */
+    List<Contact> load() throws IOException;
+
+    /**
+     * Отметить, что контакт добавлен в книжечку.
+     *
+     * @param contact новый контакт.
+     */
+    void added(Contact contact);
+
+    /**
+     * Отметить, что контакт удалён из книжечки.
+     *
+     * @param contact удалённый контакт.
+     */
+    void removed(Contact contact);
+
+    /**
+     * Сохранить изменения.
+     *
+     * @param contacts все контакты книжечки.
+     * @throws IOException при ошибке записи.
+     */
+    void save(List<Contact> contacts) throws IOException;
+
+    /**
+     * Расставить контакты в том порядке, в каком их вернёт {@link #load()}
+     * из последнего сохранённого снимка.
+     *
+     * @param contacts все контакты книжечки.
+     * @return те же контакты в порядке снимка.
+     */
+    List<Contact> inLoadOrder(List<Contact> contacts);
+
+    /**
+     * @return файлы, из которых состоит снимок книжечки.
+     */
+    List<File> files();
+}
@@ -0,0 +1,100 @@
+package backend;
+
+import java.time.LocalDate;
+
+/**
+ * Форматы, в которые можно выгрузить книжечку.
+ * Каждый контакт кодируется независимо от остальных,
+ * поэтому куски книги можно кодировать параллельно и просто склеивать.
+ */
+public enum ExportFormat {
+    /**
+     * CSV: одна строка - один контакт, номера телефонов через точку с запятой.
+     * Переводы строк внутри полей заменяются пробелами,
+     * чтобы файл можно было резать по строкам.
+     */
+    CSV {
+        @Override
+        public String header() {
+            return "surname,name,patronymic,address,phones,birthday,email\r\n";
+        }
+
+        @Override
+        public void encode(Contact contact, StringBuilder out) {
+            csvField(out, contact.getSurname()).append(',');
+            csvField(out, contact.getName()).append(',');
+            csvField(out, contact.getPatronymic()).append(',');
+            csvField(out, contact.getAddress()).append(',');
+            csvField(out, String.join(";", contact.getPhoneNumbers())).append(',');
+            out.append(contact.getBirthday().map(LocalDate::toString).orElse("")).append(',');
+            csvField(out, contact.getEmail()).append("\r\n");
+        }
+    },
+
+    /**
+     * vCard 3.0 (RFC 2426): одна карточка на контакт.
+     */
+    VCARD {
+        @Override
+        public String header() {
+            return "";
+        }
+
+        @Override
+        public void encode(Contact contact, StringBuilder out) {
+            out.append("BEGIN:VCARD\r\nVERSION:3.0\r\nN:");
+            vCardText(out, contact.getSurname()).append(';');
+            vCardText(out, contact.getName()).append(';');
+            vCardText(out, contact.getPatronymic()).append(";;\r\nFN:");
+            vCardText(out, String.join(" ", contact.getSurname(), contact.getName(),
+                    contact.getPatronymic()).trim().replaceAll("\\s+", " ")).append("\r\n");
+            for (var phone : contact.getPhoneNumbers()) {
+                vCardText(out.append("TEL;TYPE=VOICE:"), phone).append("\r\n");
+            }
+            if (!contact.getAddress().isEmpty()) {
+                vCardText(out.append("ADR;TYPE=HOME:;;"), contact.getAddress()).append(";;;;\r\n");
+            }
+            contact.getBirthday().ifPresent(date -> out.append("BDAY:").append(date).append("\r\n"));
+            if (!contact.getEmail().isEmpty()) {
+                vCardText(out.append("EMAIL;TYPE=INTERNET:"), contact.getEmail()).append("\r\n");
+            }
+            out.append("END:VCARD\r\n");
+        }
+    };
+
+    /**
+     * @return текст в начале файла выгрузки.
+     */
+    public abstract String header();
+
+    /**
+     * Закодировать контакт и дописать его в конец буфера.
+     *
+     * @param contact контакт.
+     * @param out     буфер.
+     */
+    public abstract void encode(Contact contact, StringBuilder out);
+
+    /**
+     * Дописать поле CSV, при необходимости в кавычках.
+     */
+    private static StringBuilder csvField(StringBuilder out, String value) {
+        value = value.replaceAll("[\\r\\n]+", " ");
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return out.append(value);
+        }
+
+        return out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Дописать текстовое значение vCard с экранированием.
+     */
+    private static StringBuilder vCardText(StringBuilder out, String value) {
+        return out.append(value
+                .replace("\\", "\\\\")
+                .replace(",", "\\,")
+                .replace(";", "\\;")
+                .replaceAll("\\r?\\n", "\\\\n"));
+    }
+}
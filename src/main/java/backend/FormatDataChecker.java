@@ -1,5 +1,6 @@
 package backend;
 
+import java.text.Normalizer;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
@@ -8,6 +9,14 @@ import java.util.regex.Pattern;
  * для работы с форматом строки.
  */
 public class FormatDataChecker {
+    /**
+     * Регулярочки компилируются один раз, а не на каждую проверку.
+     */
+    private static final Pattern PHONE_NUMBER =
+            Pattern.compile("^((8|\\+7)[\\- ]?)?(\\(?\\d{3}\\)?[\\- ]?)?[\\d\\- ]{3,15}$");
+    private static final Pattern EMAIL =
+            Pattern.compile("([a-zA-Z0-9]+(?:[._+-][a-zA-Z0-9]+)*)@([a-zA-Z0-9]+(?:[.-][a-zA-Z0-9]+)*[.][a-zA-Z]{2,})");
+
     /**
      * Сделать не null и не строкой из пробелов.
      *
@@ -29,7 +38,7 @@ public class FormatDataChecker {
      * @return является ли входная строка номером телефона.
      */
     public static boolean isPhoneNumber(String number) {
-        return Pattern.matches("^((8|\\+7)[\\- ]?)?(\\(?\\d{3}\\)?[\\- ]?)?[\\d\\- ]{3,15}$", number);
+        return PHONE_NUMBER.matcher(number).matches();
     }
 
     /**
@@ -39,20 +48,32 @@ public class FormatDataChecker {
      * @return является ли входная строка адресом электронной почты.
      */
     public static boolean isEmail(String email) {
-        return Pattern.matches(
-                "([a-zA-Z0-9]+(?:[._+-][a-zA-Z0-9]+)*)@([a-zA-Z0-9]+(?:[.-][a-zA-Z0-9]+)*[.][a-zA-Z]{2,})",
-                email);
+        return EMAIL.matcher(email).matches();
     }
 
     /**
      * Убрать из строки пробелы, знаки (не буквы и не цифры) и привести в лоукейс.
+     * Буквами считаются буквы любого алфавита, а не только латинские,
+     * регистр меняется одинаково при любой локали, а ё становится е.
      *
      * @param str строка.
      * @return преобразованная строка.
      */
     public static String transformStringForSearch(String str) {
-        return str.replaceAll("\\s+", "")
-                .replaceAll("\\W", "")
-                .toLowerCase();
+        if (!Normalizer.isNormalized(str, Normalizer.Form.NFC)) {
+            // й и ё, набранные буквой с отдельным значком, склеиваем в одну букву
+            str = Normalizer.normalize(str, Normalizer.Form.NFC);
+        }
+
+        StringBuilder result = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); ) {
+            int codePoint = str.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                codePoint = Character.toLowerCase(codePoint);
+                result.appendCodePoint(codePoint == 'ё' ? 'е' : codePoint);
+            }
+        }
+        return result.toString();
     }
 }
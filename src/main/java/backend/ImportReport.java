@@ -0,0 +1,107 @@
+package backend;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Отчёт о загрузке контактов из файла.
+ */
+public class ImportReport {
+    /**
+     * Сколько контактов добавлено в книгу.
+     */
+    private int imported;
+
+    /**
+     * Отвергнутые строки файла.
+     */
+    private final List<RejectedRow> rejectedRows = new ArrayList<>();
+
+    /**
+     * @return сколько контактов добавлено в книгу.
+     */
+    public int getImported() {
+        return imported;
+    }
+
+    /**
+     * @return отвергнутые строки в порядке следования в файле.
+     */
+    public List<RejectedRow> getRejectedRows() {
+        return Collections.unmodifiableList(rejectedRows);
+    }
+
+    /**
+     * Записать отвергнутые строки в файл: номер строки, причина и сама строка через табуляцию.
+     *
+     * @param path путь к файлу отчёта.
+     * @throws IOException при ошибке записи.
+     */
+    public void writeRejectedRows(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (var row : rejectedRows) {
+                writer.write(row.getLine() + "\t" + row.getReason() + "\t" + row.getText() + "\n");
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Добавлено контактов: " + imported + ", отвергнуто строк: " + rejectedRows.size();
+    }
+
+    void addImported(int count) {
+        imported += count;
+    }
+
+    void reject(long line, String reason, String text) {
+        rejectedRows.add(new RejectedRow(line, reason, text));
+    }
+
+    void sortRejectedRows() {
+        rejectedRows.sort(Comparator.comparingLong(RejectedRow::getLine));
+    }
+
+    /**
+     * Отвергнутая строка файла.
+     */
+    public static class RejectedRow {
+        private final long line;
+        private final String reason;
+        private final String text;
+
+        RejectedRow(long line, String reason, String text) {
+            this.line = line;
+            this.reason = reason;
+            this.text = text;
+        }
+
+        /**
+         * @return номер строки в файле, начиная с единицы.
+         */
+        public long getLine() {
+            return line;
+        }
+
+        /**
+         * @return почему строку не приняли.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return текст строки или первая строка карточки.
+         */
+        public String getText() {
+            return text;
+        }
+    }
+}
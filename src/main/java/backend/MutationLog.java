@@ -0,0 +1,190 @@
+package backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Журнал изменений книжечки, в который можно только дописывать.
+ * Одна строка - одно изменение: номер, время, операция и контакт в JSON через табуляцию.
+ * Внутри JSON табуляции и переводы строк экранированы, так что строки журнала
+ * можно читать, не разбирая JSON.
+ */
+class MutationLog implements Closeable {
+    static final String ADD = "ADD";
+    static final String DELETE = "DEL";
+
+    /**
+     * Сколько байтов с конца журнала читать за раз, чтобы найти последнюю целую строку.
+     */
+    private static final int TAIL_WINDOW = 1 << 16;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FileChannel channel;
+
+    /**
+     * Номер последней записанной строки.
+     */
+    private long sequence;
+
+    /**
+     * Открыть журнал для дописывания. Если журнала нет, он создаётся.
+     *
+     * @param file файл журнала.
+     * @throws IOException при ошибке открытия.
+     */
+    MutationLog(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        sequence = lastSequence();
+        channel.position(channel.size());
+    }
+
+    /**
+     * Файл журнала для книжечки.
+     *
+     * @param book основной файл книжечки.
+     * @return файл журнала рядом с ним.
+     */
+    static File fileFor(File book) {
+        return new File(book.getPath() + ".log");
+    }
+
+    /**
+     * Дописать изменения одной записью на диск.
+     *
+     * @param operation {@link #ADD} или {@link #DELETE}.
+     * @param contacts  изменённые контакты.
+     * @throws IOException при ошибке записи.
+     */
+    void append(String operation, List<Contact> contacts) throws IOException {
+        long time = System.currentTimeMillis();
+        StringBuilder lines = new StringBuilder();
+        for (var contact : contacts) {
+            lines.append(sequence + 1).append('\t')
+                    .append(time).append('\t')
+                    .append(operation).append('\t')
+                    .append(mapper.writeValueAsString(contact)).append('\n');
+            sequence++;
+        }
+
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines.toString());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return номер последней записанной строки.
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Разобрать строку журнала.
+     *
+     * @param line   строка без перевода строки.
+     * @param mapper чем разбирать JSON контакта.
+     * @return изменение.
+     * @throws IOException если строка испорчена.
+     */
+    static Entry parse(String line, ObjectMapper mapper) throws IOException {
+        String[] parts = line.split("\t", 4);
+        if (parts.length != 4) {
+            throw new IOException("Испорченная строка журнала: " + line);
+        }
+
+        if (!ADD.equals(parts[2]) && !DELETE.equals(parts[2])) {
+            throw new IOException("Неизвестная операция в журнале: " + line);
+        }
+
+        try {
+            return new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2],
+                    Objects.requireNonNull(mapper.readValue(parts[3], Contact.class)));
+        } catch (NumberFormatException | NullPointerException ex) {
+            throw new IOException("Испорченная строка журнала: " + line, ex);
+        }
+    }
+
+    /**
+     * Найти номер последней целой строки журнала.
+     * Если журнал обрывается на середине строки (книжечка упала во время записи),
+     * недописанный хвост отрезается: реплики его ещё не читали, ведь он не кончается переводом строки.
+     */
+    private long lastSequence() throws IOException {
+        long size = channel.size();
+        long end = size;
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.min(size, TAIL_WINDOW));
+        String text = "";
+        while (end > 0) {
+            long from = Math.max(0, end - TAIL_WINDOW);
+            tail.clear();
+            tail.limit((int) (end - from));
+            while (tail.hasRemaining() && channel.read(tail, from + tail.position()) >= 0) {
+                // читаем окно целиком
+            }
+
+            int lastNewLine = lastIndexOf(tail.array(), tail.position(), (byte) '\n');
+            if (lastNewLine >= 0) {
+                end = from + lastNewLine + 1;
+                text = new String(tail.array(), 0, lastNewLine + 1, StandardCharsets.UTF_8);
+                break;
+            }
+            end = from;
+        }
+
+        if (end < size) {
+            channel.truncate(end);
+        }
+
+        String[] lines = text.split("\n");
+        for (int i = lines.length - 1; i >= 0; i--) {
+            try {
+                return Long.parseLong(lines[i].split("\t", 2)[0]);
+            } catch (NumberFormatException ex) {
+                // кусок строки в начале окна или испорченная строка
+            }
+        }
+        return 0;
+    }
+
+    private static int lastIndexOf(byte[] bytes, int length, byte value) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Одно изменение из журнала.
+     */
+    static class Entry {
+        final long sequence;
+        final long time;
+        final String operation;
+        final Contact contact;
+
+        Entry(long sequence, long time, String operation, Contact contact) {
+            this.sequence = sequence;
+            this.time = time;
+            this.operation = operation;
+            this.contact = contact;
+        }
+    }
+}
@@ -1,51 +1,174 @@
 package backend;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import static backend.FormatDataChecker.transformStringForSearch;
 
 /**
  * Телефонная книжечка.
  */
-public class PhoneBook {
+public class PhoneBook implements Closeable {
 
     /**
      * Контакты книжечки.
      */
     private List<Contact> contacts;
 
-    private final ObjectMapper mapper;
+    /**
+     * Контакты по ключу ФИО, чтобы быстро находить дубликаты.
+     */
+    private final Map<String, Contact> contactsByFullName = new HashMap<>();
+
+    /**
+     * Основной файл книжечки.
+     */
     private final File file;
 
+    /**
+     * Хранилище контактов между запусками.
+     */
+    private final ContactStorage storage;
+
+    /**
+     * Открыта ли книжечка только для чтения.
+     */
+    private final boolean readOnly;
+
+    /**
+     * Журнал изменений для реплик или null, если он не ведётся.
+     */
+    private MutationLog mutationLog;
+
+    /**
+     * Поисковые индексы.
+     */
+    private ContactIndex index;
+
+    /**
+     * Менялись ли индексы с тех пор, как их сохранили в файл.
+     */
+    private boolean indexChanged;
+
+    /**
+     * Замок для одновременной работы с книжечкой из нескольких потоков:
+     * поиски читают параллельно, изменения идут по одному.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Поколение книги. Увеличивается при каждом изменении контактов.
+     */
+    private long generation;
+
+    /**
+     * Запись операций с книжечкой или null, если она не ведётся.
+     */
+    private volatile WorkloadRecorder recorder;
+
+    /**
+     * Примерный объём памяти, который занимают контакты и индексы, в байтах.
+     */
+    private long footprint;
+
+    /**
+     * Сколько памяти примерно занимает один контакт вместе с записями в индексах,
+     * не считая строк: сам объект, списки, узлы хеш-таблиц и деревьев.
+     */
+    private static final long CONTACT_OVERHEAD = 320;
+
+    /**
+     * Кеш результатов поиска.
+     */
+    private final QueryCache queryCache = new QueryCache(QueryCache.DEFAULT_CAPACITY);
+
     /**
      * Конструктор книжечки.
+     * Если файл книжечки с расширением {@code .jsonz}, контакты хранятся
+     * сжатыми блоками, которые сохраняются и читаются параллельно.
      * @param path путь к данным книжечки.
      * @throws IOException          если не получится десериализовать файл.
      * @throws NullPointerException если путь пуст или null.
      */
     public PhoneBook(String path) throws IOException {
+        this(path, 1);
+    }
+
+    /**
+     * Конструктор книжечки, разложенной по нескольким файлам-сегментам.
+     * При изменении переписываются только затронутые сегменты,
+     * а при открытии сегменты читаются параллельно.
+     * @param path   путь к данным книжечки, рядом с ним лягут сегменты.
+     * @param shards число сегментов. 1 - обычная книжечка в одном файле.
+     * @throws IOException          если не получится десериализовать файлы.
+     * @throws NullPointerException если путь пуст или null.
+     */
+    public PhoneBook(String path, int shards) throws IOException {
+        this(path, shards, false);
+    }
+
+    /**
+     * Конструктор книжечки, которую можно открыть только для чтения.
+     * Такая книжечка ничего не пишет на диск,
+     * а меняется только через {@link #applyMutation(MutationLog.Entry)}.
+     * @param path     путь к данным книжечки.
+     * @param shards   число сегментов.
+     * @param readOnly открыть только для чтения.
+     * @throws IOException          если не получится десериализовать файлы.
+     * @throws NullPointerException если путь пуст или null.
+     */
+    PhoneBook(String path, int shards, boolean readOnly) throws IOException {
         path = FormatDataChecker.makeNotBlank(path);
         if (path.isEmpty()) {
             throw new NullPointerException("Путь к файлу не может быть пустым!");
         }
 
         file = new File(path);
-        mapper = new ObjectMapper();
+        if (shards > 1) {
+            storage = new ShardedStorage(file, shards, readOnly);
+        } else if (CompressedStorage.accepts(file)) {
+            storage = new CompressedStorage(file);
+        } else {
+            storage = new SingleFileStorage(file, readOnly);
+        }
+        this.readOnly = readOnly;
         contacts = new ArrayList<>();
         deserialize();
     }
 
+    /**
+     * Начать вести журнал изменений, по которому реплики догоняют книжечку.
+     * Журнал лежит рядом с файлом книжечки и только растёт.
+     *
+     * @throws IOException если журнал не получилось открыть.
+     */
+    public void enableMutationLog() throws IOException {
+        checkWritable();
+        lock.writeLock().lock();
+        try {
+            if (Objects.isNull(mutationLog)) {
+                mutationLog = new MutationLog(MutationLog.fileFor(file));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     /**
      * Добавить контакт.
      *
@@ -62,23 +185,34 @@ public class PhoneBook {
     public boolean addContact(final String name, final String surname, final String patronymic,
                               String address, List<String> phoneNumbers,
                               LocalDate birthday, String email) throws IOException {
+        WorkloadRecorder recorder = this.recorder;
+        if (!Objects.isNull(recorder)) {
+            recorder.recordAdd(name, surname, patronymic, address, phoneNumbers,
+                    Objects.isNull(birthday) ? "" : birthday.toString(), email);
+        }
+
         if ((Objects.isNull(name) || name.isBlank())
                 && (Objects.isNull(surname) || surname.isBlank())
                 && (Objects.isNull(patronymic) || patronymic.isBlank())) {
             return false;
         }
 
-        if (contacts.stream()
-                .filter((contact -> contact.getName().equals(name)))
-                .filter(contact -> contact.getSurname().equals(surname))
-                .filter(contact -> contact.getPatronymic().equals(patronymic))
-                .count() > 0) {
-            return false;
-        }
+        checkWritable();
+        lock.writeLock().lock();
+        try {
+            if (findContact(name, surname, patronymic).isPresent()) {
+                return false;
+            }
 
-        contacts.add(new Contact(name, surname, patronymic, address, phoneNumbers, birthday, email));
-        serialize();
-        return true;
+            Contact contact = new Contact(name, surname, patronymic, address, phoneNumbers, birthday, email);
+            insert(contact);
+            storage.added(contact);
+            serialize();
+            log(MutationLog.ADD, List.of(contact));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -88,8 +222,45 @@ public class PhoneBook {
      * @throws IOException
      */
     public void deleteContact(Contact hater) throws IOException {
-        contacts.remove(hater);
-        serialize();
+        if (!Objects.isNull(hater)) {
+            record(WorkloadRecorder.DELETE, hater.getName(), hater.getSurname(), hater.getPatronymic());
+        }
+        checkWritable();
+        lock.writeLock().lock();
+        try {
+            boolean removed = remove(hater);
+            if (removed) {
+                storage.removed(hater);
+            }
+            serialize();
+            if (removed) {
+                log(MutationLog.DELETE, List.of(hater));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Найти контакт с точно таким ФИО.
+     *
+     * @param name       имя.
+     * @param surname    фамилия.
+     * @param patronymic отчество.
+     * @return опшионал с контактом, если такой есть в книге.
+     */
+    public Optional<Contact> findContact(String name, String surname, String patronymic) {
+        final String exactName = FormatDataChecker.makeNotBlank(name);
+        final String exactSurname = FormatDataChecker.makeNotBlank(surname);
+        final String exactPatronymic = FormatDataChecker.makeNotBlank(patronymic);
+
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(contactsByFullName.get(
+                    Contact.fullNameKey(exactName, exactSurname, exactPatronymic)));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -99,17 +270,9 @@ public class PhoneBook {
      * @return список подходящих контактов.
      */
     public List<Contact> findByFullName(String startOfName) {
-        return find(new Predicate<>() {
-            final String startWithIt = transformStringForSearch(startOfName);
-
-            @Override
-            public boolean test(Contact contact) {
-                String fullName = contact.getSurname() + contact.getName() +
-                        contact.getPatronymic();
-                fullName = transformStringForSearch(fullName);
-                return fullName.startsWith(startWithIt);
-            }
-        });
+        record(WorkloadRecorder.FIND_BY_FULL_NAME, startOfName);
+        final String startWithIt = transformStringForSearch(startOfName);
+        return find("fio:" + startWithIt, () -> index.findByFullName(startWithIt));
     }
 
     /**
@@ -119,21 +282,27 @@ public class PhoneBook {
      * @return список подходящих контактов.
      */
     public List<Contact> findByPhoneNumber(String startOfNumber) {
-        return find(new Predicate<>() {
-            final String startWithIt = transformStringForSearch(startOfNumber);
-
-            @Override
-            public boolean test(Contact contact) {
-                for (var number :
-                        contact.getPhoneNumbers()) {
-                    if (transformStringForSearch(number).startsWith(startWithIt)) {
-                        return true;
-                    }
-                }
+        record(WorkloadRecorder.FIND_BY_PHONE, startOfNumber);
+        final String startWithIt = transformStringForSearch(startOfNumber);
+        return find("phone:" + startWithIt, () -> index.findByPhoneNumber(startWithIt));
+    }
 
-                return false;
-            }
-        });
+    /**
+     * Узнать, кто звонит, по номеру в любом формате.
+     * Номера сравниваются по последним цифрам, поэтому контакт найдётся,
+     * даже если его номер записан с +7, с 8 или без кода города.
+     *
+     * @param callerId номер звонящего.
+     * @return список подходящих контактов.
+     */
+    public List<Contact> findByCallerId(String callerId) {
+        record(WorkloadRecorder.FIND_BY_CALLER_ID, callerId);
+        lock.readLock().lock();
+        try {
+            return index.findByCallerId(callerId);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -143,16 +312,32 @@ public class PhoneBook {
      * @return список подходящих контактов.
      */
     public List<Contact> findByBirthday(final LocalDate date) {
-        return find(new Predicate<>() {
-            @Override
-            public boolean test(Contact contact) {
-                if (contact.getBirthday().isEmpty()) {
-                    return false;
-                } else {
-                    return contact.getBirthday().get().equals(date);
-                }
-            }
-        });
+        record(WorkloadRecorder.FIND_BY_BIRTHDAY, String.valueOf(date));
+        return find("birthday:" + date, () -> index.findByBirthday(date));
+    }
+
+    /**
+     * Начать поиск по мере набора: каждый следующий запрос,
+     * продолжающий предыдущий, сужает уже найденных кандидатов.
+     *
+     * @param field по какому полю искать.
+     * @return новая сессия поиска.
+     */
+    public SearchSession openSearchSession(SearchField field) {
+        return openSearchSession(field, 0);
+    }
+
+    /**
+     * Начать поиск по мере набора, который возвращает не больше limit контактов.
+     * Тогда каждый запрос стоит не больше, чем перебор limit контактов в индексе,
+     * каким бы коротким ни был запрос.
+     *
+     * @param field по какому полю искать.
+     * @param limit сколько контактов возвращать, 0 - все.
+     * @return новая сессия поиска.
+     */
+    public SearchSession openSearchSession(SearchField field, int limit) {
+        return new SearchSession(this, field, limit);
     }
 
     /**
@@ -161,19 +346,353 @@ public class PhoneBook {
      * @return все контакты книги.
      */
     public List<Contact> getAllContacts() {
-        return new ArrayList<>(contacts);
+        record(WorkloadRecorder.ALL);
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(contacts);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
-     * Найти контакты с помощью предиката.
+     * Пройтись по всем контактам книги, не копируя их список.
+     * Пока идёт обход, книгу нельзя изменить.
      *
-     * @param conditionForSearch условие для выбора подходящих контактов.
+     * @param action что сделать с каждым контактом.
+     */
+    public void forEachContact(Consumer<Contact> action) {
+        lock.readLock().lock();
+        try {
+            contacts.forEach(action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выгрузить книгу в файл.
+     * Куски книги кодируются параллельно и пишутся в файл по порядку.
+     * Пока идёт выгрузка, книгу нельзя изменить.
+     *
+     * @param path   путь к файлу выгрузки.
+     * @param format формат выгрузки.
+     * @return число выгруженных контактов.
+     * @throws IOException при ошибке записи.
+     */
+    public int export(String path, ExportFormat format) throws IOException {
+        lock.readLock().lock();
+        try {
+            return ContactExporter.export(contacts, Path.of(path), format);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Загрузить контакты из файла.
+     * Файл разбирается и проверяется параллельно,
+     * а потом за один проход отсеиваются дубликаты и книга сохраняется один раз.
+     *
+     * @param path   путь к файлу.
+     * @param format формат файла.
+     * @return отчёт о загрузке с отвергнутыми строками.
+     * @throws IOException при ошибке чтения файла или сохранения книги.
+     */
+    public ImportReport importContacts(String path, ExportFormat format) throws IOException {
+        ContactImporter.Result parsed = ContactImporter.parse(Path.of(path), format);
+        ImportReport report = parsed.report;
+
+        checkWritable();
+        lock.writeLock().lock();
+        try {
+            List<Contact> added = new ArrayList<>();
+            for (var row : parsed.rows) {
+                if (!contactsByFullName.containsKey(row.contact.fullNameKey())) {
+                    insert(row.contact);
+                    storage.added(row.contact);
+                    added.add(row.contact);
+                } else {
+                    report.reject(row.line, "дубликат", String.join(" ", row.contact.getSurname(),
+                            row.contact.getName(), row.contact.getPatronymic()));
+                }
+            }
+
+            report.addImported(added.size());
+            if (!added.isEmpty()) {
+                serialize();
+                log(MutationLog.ADD, added);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        report.sortRejectedRows();
+        return report;
+    }
+
+    /**
+     * Получить счётчики кеша результатов поиска.
+     *
+     * @return попадания, промахи и вытеснения кеша.
+     */
+    public CacheStatistics getQueryCacheStatistics() {
+        return queryCache.statistics();
+    }
+
+    /**
+     * @return текущее поколение книги.
+     */
+    long getGeneration() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пары ключ-контакт индекса поля, где ключ начинается с префикса.
+     *
+     * @param field  поле.
+     * @param prefix нормализованный префикс.
+     * @param limit  сколько разных контактов нужно, 0 - все.
+     * @return пары в порядке ключей.
+     */
+    List<ContactIndex.Posting> postings(SearchField field, String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return field == SearchField.FULL_NAME
+                    ? index.fullNamePostings(prefix, limit)
+                    : index.phonePostings(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Найти контакты по индексу.
+     * Результат берётся из кеша, если книга не менялась с тех пор,
+     * как такой же запрос уже считался.
+     *
+     * @param query  нормализованный запрос, ключ в кеше.
+     * @param search поиск по индексу.
      * @return список подходящих контактов.
      */
-    private List<Contact> find(Predicate<Contact> conditionForSearch) {
-        return contacts.stream().
-                filter(conditionForSearch).
-                collect(Collectors.toList());
+    private List<Contact> find(String query, Supplier<List<Contact>> search) {
+        lock.readLock().lock();
+        try {
+            List<Contact> found = queryCache.get(query, generation);
+            if (found == null) {
+                found = Collections.unmodifiableList(search.get());
+                queryCache.put(query, generation, found);
+            }
+
+            return new ArrayList<>(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Найти контакты по произвольному условию перебором.
+     * Большие книги перебираются параллельно по кускам.
+     *
+     * @param condition условие для выбора подходящих контактов.
+     * @param limit     сколько контактов достаточно найти, 0 - все.
+     * @return найденные контакты и статистика перебора.
+     */
+    public ScanResult scan(Predicate<Contact> condition, int limit) {
+        lock.readLock().lock();
+        try {
+            return ContactScanner.scan(contacts, condition, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Прочитать один блок сжатой книжечки прямо из файла, не открывая её
+     * и не распаковывая остальные блоки. Например, чтобы по частям посмотреть
+     * большую резервную копию: блоки читаются по номерам, пока не вернётся пустой.
+     *
+     * @param path  путь к сжатой книжечке с расширением {@code .jsonz}.
+     * @param block номер блока, с нуля.
+     * @return контакты блока по порядку или пустой список, если блоков меньше.
+     * @throws IOException          если файла нет, он не сжатая книжечка или испорчен.
+     * @throws NullPointerException если путь пуст или null.
+     */
+    public static List<Contact> readCompressedBlock(String path, int block) throws IOException {
+        path = FormatDataChecker.makeNotBlank(path);
+        if (path.isEmpty()) {
+            throw new NullPointerException("Путь к файлу не может быть пустым!");
+        }
+
+        File file = new File(path);
+        if (!CompressedStorage.accepts(file)) {
+            throw new IOException("Книжечка " + path + " хранится не сжатой.");
+        }
+        if (!file.isFile()) {
+            throw new IOException("Файла " + path + " нет.");
+        }
+        return new CompressedStorage(file).readBlock(block);
+    }
+
+    /**
+     * Закрыть книжечку: сохранить поисковые индексы,
+     * чтобы следующее открытие не строило их заново, и закрыть журнал изменений.
+     *
+     * @throws IOException при ошибке записи.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (indexChanged && !readOnly) {
+                index.write(ContactIndex.fileFor(file), ContactIndex.stamp(storage.files()),
+                        storage.inLoadOrder(contacts));
+                indexChanged = false;
+            }
+
+            if (!Objects.isNull(mutationLog)) {
+                mutationLog.close();
+                mutationLog = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Начать или закончить запись операций с книжечкой:
+     * добавлений, удалений и поисков с их аргументами.
+     * Записанное можно повторить через {@link WorkloadReplayer}.
+     *
+     * @param recorder куда записывать или null, чтобы перестать.
+     */
+    public void setRecorder(WorkloadRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Примерный объём памяти, который занимает книжечка вместе с кешем результатов поиска.
+     * Считается приблизительно, по числу и длине строк, и нужен,
+     * чтобы решать, какие книжечки держать в памяти.
+     *
+     * @return объём в байтах.
+     */
+    public long estimateFootprint() {
+        lock.readLock().lock();
+        try {
+            return footprint + queryCache.retainedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Применить изменение из журнала основной книжечки.
+     * Повторное применение того же изменения ничего не портит:
+     * добавление заменяет контакт с тем же ФИО, удаление отсутствующего ничего не делает.
+     *
+     * @param entry изменение.
+     */
+    void applyMutation(MutationLog.Entry entry) {
+        lock.writeLock().lock();
+        try {
+            Contact existing = contactsByFullName.get(entry.contact.fullNameKey());
+            if (!Objects.isNull(existing)) {
+                remove(existing);
+            }
+
+            if (MutationLog.ADD.equals(entry.operation)) {
+                insert(entry.contact);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавить контакт в память книжечки.
+     */
+    private void insert(Contact contact) {
+        contacts.add(contact);
+        contactsByFullName.put(contact.fullNameKey(), contact);
+        index.add(contact);
+        indexChanged = true;
+        footprint += footprintOf(contact);
+        generation++;
+    }
+
+    /**
+     * Убрать контакт из памяти книжечки.
+     *
+     * @return был ли такой контакт в книжечке.
+     */
+    private boolean remove(Contact contact) {
+        if (!contacts.remove(contact)) {
+            return false;
+        }
+
+        contactsByFullName.remove(contact.fullNameKey());
+        index.remove(contact);
+        indexChanged = true;
+        footprint -= footprintOf(contact);
+        generation++;
+        return true;
+    }
+
+    /**
+     * Примерный объём памяти под контакт вместе с его ключами в индексах.
+     */
+    private static long footprintOf(Contact contact) {
+        long size = CONTACT_OVERHEAD
+                + 3 * footprintOf(contact.getSurname())
+                + 3 * footprintOf(contact.getName())
+                + 3 * footprintOf(contact.getPatronymic())
+                + footprintOf(contact.getAddress())
+                + footprintOf(contact.getEmail());
+        for (var phone : contact.getPhoneNumbers()) {
+            size += 2 * footprintOf(phone);
+        }
+        return size;
+    }
+
+    /**
+     * Примерный объём памяти под строку: заголовок, массив и по два байта на символ.
+     */
+    private static long footprintOf(String value) {
+        return Objects.isNull(value) ? 0 : 40 + 2L * value.length();
+    }
+
+    /**
+     * Записать операцию, если запись ведётся.
+     */
+    private void record(String operation, String... arguments) {
+        WorkloadRecorder recorder = this.recorder;
+        if (!Objects.isNull(recorder)) {
+            recorder.record(operation, arguments);
+        }
+    }
+
+    /**
+     * Дописать изменение в журнал, если он ведётся.
+     */
+    private void log(String operation, List<Contact> changed) throws IOException {
+        if (!Objects.isNull(mutationLog)) {
+            mutationLog.append(operation, changed);
+        }
+    }
+
+    /**
+     * Убедиться, что книжечку можно менять.
+     */
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Книжечка открыта только для чтения!");
+        }
     }
 
     /**
@@ -182,8 +701,8 @@ public class PhoneBook {
      * @throws IOException при ошибке сериализации.
      */
     private void serialize() throws IOException {
-        try (FileWriter writer = new FileWriter(file, false)) {
-            mapper.writeValue(writer, contacts);
+        if (!readOnly) {
+            storage.save(contacts);
         }
     }
 
@@ -192,11 +711,23 @@ public class PhoneBook {
      *
      * @throws IOException при ошибки десериализации.
      */
-    @SuppressWarnings("unchecked")
     private void deserialize() throws IOException {
-        if (!file.createNewFile()) {
-            try (FileReader reader = new FileReader(file)) {
-                contacts = new ArrayList<Contact>(mapper.readValue(reader, /*new TypeReference<List<Contact>>() { }*/ contacts.getClass()));
+        contacts = storage.load();
+        contactsByFullName.clear();
+        footprint = 0;
+        for (var contact : contacts) {
+            contactsByFullName.put(contact.fullNameKey(), contact);
+            footprint += footprintOf(contact);
+        }
+
+        File indexFile = ContactIndex.fileFor(file);
+        long stamp = ContactIndex.stamp(storage.files());
+        index = ContactIndex.read(indexFile, stamp, contacts);
+        indexChanged = false;
+        if (Objects.isNull(index)) {
+            index = ContactIndex.build(contacts);
+            if (!readOnly) {
+                index.write(indexFile, stamp, contacts);
             }
         }
     }
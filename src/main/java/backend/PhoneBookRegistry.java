@@ -0,0 +1,331 @@
+package backend;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Реестр книжечек, лежащих в одной папке: книжечка на отдел, имя книжечки - имя файла.
+ * <p>
+ * Книжечки открываются при первом обращении и остаются в памяти, пока хватает бюджета.
+ * Когда примерный объём открытых книжечек превышает бюджет, дольше всех не нужные
+ * книжечки закрываются: их индексы сохраняются рядом с файлом, поэтому повторное
+ * открытие только читает снимок и индексы, не перестраивая их.
+ * Книжечка, с которой сейчас работают, не выгружается.
+ * <p>
+ * Выгружаемые книжечки выбираются под замком реестра, а закрываются уже без него,
+ * чтобы запись индексов одной книжечки не задерживала работу с остальными.
+ * Повторное открытие той же книжечки дожидается, пока она закроется.
+ */
+public class PhoneBookRegistry implements Closeable {
+    /**
+     * Расширение файлов книжечек.
+     */
+    public static final String EXTENSION = ".json";
+
+    /**
+     * Допустимые имена книжечек: без путей, чтобы не выйти из папки.
+     */
+    private static final Pattern NAME = Pattern.compile("[\\p{L}\\p{N}_\\-]+(\\.[\\p{L}\\p{N}_\\-]+)*");
+
+    private final Logger logger = LogManager.getLogger();
+
+    private final File directory;
+    private final long budget;
+
+    /**
+     * Книжечки в порядке последнего обращения, самые давние первыми.
+     */
+    private final LinkedHashMap<String, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long footprint;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long totalLoadNanos;
+    private long maxLoadNanos;
+    private boolean closed;
+
+    /**
+     * @param directory папка с книжечками. Если её нет, она будет создана.
+     * @param budget    сколько памяти в байтах разрешено занимать открытым книжечкам.
+     * @throws IOException если папку не получилось создать.
+     */
+    public PhoneBookRegistry(String directory, long budget) throws IOException {
+        directory = FormatDataChecker.makeNotBlank(directory);
+        if (directory.isEmpty()) {
+            throw new NullPointerException("Путь к папке с книжечками не может быть пустым!");
+        }
+
+        this.directory = new File(directory);
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("Не получилось создать папку " + directory);
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * Поработать с книжечкой. Пока действие выполняется, книжечка не выгружается.
+     * Если книжечки ещё нет, она будет создана.
+     *
+     * @param name   имя книжечки.
+     * @param action что сделать с книжечкой.
+     * @param <T>    результат действия.
+     * @return результат действия.
+     * @throws IOException если книжечку не получилось открыть или действие упало с ошибкой.
+     */
+    public <T> T withBook(String name, BookAction<T> action) throws IOException {
+        if (Objects.isNull(name) || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Недопустимое имя книжечки: " + name);
+        }
+
+        Slot slot;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Реестр книжечек уже закрыт!");
+            }
+            slot = slots.computeIfAbsent(name, Slot::new);
+            slot.pins++;
+        }
+
+        PhoneBook book;
+        try {
+            book = open(slot);
+        } catch (IOException | RuntimeException ex) {
+            synchronized (this) {
+                slot.pins--;
+            }
+            throw ex;
+        }
+
+        try {
+            return action.apply(book);
+        } finally {
+            long current = book.estimateFootprint();
+            List<Slot> victims;
+            synchronized (this) {
+                slot.pins--;
+                if (slot.book == book) {
+                    footprint += current - slot.footprint;
+                    slot.footprint = current;
+                }
+                victims = evict();
+            }
+
+            for (var victim : victims) {
+                closeEvicted(victim);
+            }
+        }
+    }
+
+    /**
+     * @return имена всех книжечек в папке, в том числе не открытых.
+     */
+    public List<String> names() {
+        List<String> names = new ArrayList<>();
+        File[] files = directory.listFiles((dir, file) -> file.endsWith(EXTENSION));
+        if (!Objects.isNull(files)) {
+            for (var file : files) {
+                String name = file.getName();
+                names.add(name.substring(0, name.length() - EXTENSION.length()));
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+
+    /**
+     * @return счётчики обращений, загрузок и выгрузок.
+     */
+    public synchronized RegistryStatistics getStatistics() {
+        int open = 0;
+        for (var slot : slots.values()) {
+            if (!Objects.isNull(slot.book)) {
+                open++;
+            }
+        }
+        return new RegistryStatistics(hits, misses, evictions, totalLoadNanos, maxLoadNanos,
+                open, footprint, budget);
+    }
+
+    /**
+     * Закрыть все открытые книжечки.
+     *
+     * @throws IOException если какую-то книжечку не получилось закрыть.
+     */
+    @Override
+    public void close() throws IOException {
+        List<Slot> open;
+        synchronized (this) {
+            closed = true;
+            open = new ArrayList<>(slots.values());
+            for (var slot : open) {
+                release(slot);
+            }
+            slots.clear();
+        }
+
+        IOException failure = null;
+        for (var slot : open) {
+            try {
+                finishClosing(slot);
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (!Objects.isNull(failure)) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Открыть книжечку, если она ещё не в памяти.
+     * Разные книжечки открываются параллельно, одна и та же - только один раз.
+     */
+    private PhoneBook open(Slot slot) throws IOException {
+        synchronized (slot) {
+            closeEvicted(slot);
+            if (!Objects.isNull(slot.book)) {
+                synchronized (this) {
+                    hits++;
+                }
+                return slot.book;
+            }
+
+            long start = System.nanoTime();
+            PhoneBook book = new PhoneBook(new File(directory, slot.name + EXTENSION).getPath());
+            long elapsed = System.nanoTime() - start;
+            logger.info("Книжечка " + slot.name + " загружена за " + elapsed / 1_000_000 + " мс.");
+
+            synchronized (this) {
+                slot.book = book;
+                misses++;
+                totalLoadNanos += elapsed;
+                maxLoadNanos = Math.max(maxLoadNanos, elapsed);
+            }
+            return book;
+        }
+    }
+
+    /**
+     * Выбрать давно не нужные книжечки, пока открытые не уложатся в бюджет.
+     * Вызывается под замком реестра, а закрывать выбранные нужно уже без него.
+     * Пустые места реестра по дороге убираются.
+     *
+     * @return места книжечек, которые нужно закрыть.
+     */
+    private List<Slot> evict() {
+        List<Slot> victims = new ArrayList<>();
+        Iterator<Slot> iterator = slots.values().iterator();
+        while (footprint > budget && iterator.hasNext()) {
+            Slot slot = iterator.next();
+            if (slot.pins > 0) {
+                continue;
+            }
+
+            if (!Objects.isNull(slot.book)) {
+                evictions++;
+                logger.info("Книжечка " + slot.name + " выгружается из памяти.");
+                release(slot);
+                victims.add(slot);
+            } else if (Objects.isNull(slot.closing)) {
+                iterator.remove();
+            }
+        }
+        return victims;
+    }
+
+    /**
+     * Забрать книжечку из места для закрытия и забыть её объём.
+     * Вызывается под замком реестра.
+     */
+    private void release(Slot slot) {
+        if (Objects.isNull(slot.book)) {
+            return;
+        }
+
+        footprint -= slot.footprint;
+        slot.footprint = 0;
+        slot.closing = slot.book;
+        slot.book = null;
+    }
+
+    /**
+     * Закрыть выгруженную книжечку, если она ещё не закрыта.
+     * Ошибка только записывается в лог: снимок книжечки сохраняется при каждом изменении,
+     * а несохранённые индексы просто построятся заново при следующем открытии.
+     */
+    private void closeEvicted(Slot slot) {
+        try {
+            finishClosing(slot);
+        } catch (IOException ex) {
+            logger.error("Не получилось закрыть книжечку " + slot.name + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Закрыть выгруженную книжечку, сохранив её индексы.
+     * Идёт под замком места, поэтому повторное открытие дождётся конца закрытия.
+     */
+    private void finishClosing(Slot slot) throws IOException {
+        synchronized (slot) {
+            PhoneBook book;
+            synchronized (this) {
+                book = slot.closing;
+            }
+            if (Objects.isNull(book)) {
+                return;
+            }
+
+            try {
+                book.close();
+            } finally {
+                synchronized (this) {
+                    slot.closing = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Действие с книжечкой.
+     *
+     * @param <T> результат действия.
+     */
+    @FunctionalInterface
+    public interface BookAction<T> {
+        T apply(PhoneBook phoneBook) throws IOException;
+    }
+
+    /**
+     * Место книжечки в реестре.
+     */
+    private static class Slot {
+        final String name;
+        PhoneBook book;
+        long footprint;
+
+        /**
+         * Выгруженная книжечка, которую ещё нужно закрыть, или null.
+         */
+        PhoneBook closing;
+
+        /**
+         * Сколько потоков сейчас работают с книжечкой.
+         */
+        int pins;
+
+        Slot(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Книжечка только для чтения, которая догоняет основную книжечку из другого процесса,
+ * дочитывая её журнал изменений ({@link PhoneBook#enableMutationLog()}).
+ * <p>
+ * Сначала запоминается конец журнала, потом читается снимок книжечки,
+ * и дальше применяются все изменения после запомненного места.
+ * Изменения, которые уже попали в снимок, применяются повторно без вреда.
+ * <p>
+ * Реплика ничего не создаёт и не пишет в файлы основной книжечки.
+ * Если журнала ещё нет, он подхватывается с начала, как только появится.
+ */
+public class PhoneBookReplica implements Closeable {
+    /**
+     * Логгер реплики.
+     */
+    private final Logger logger = LogManager.getLogger();
+
+    /**
+     * Сколько раз пробовать прочитать снимок, который основная книжечка как раз переписывает.
+     */
+    private static final int LOAD_ATTEMPTS = 5;
+
+    /**
+     * Пауза перед второй попыткой, дальше она удваивается.
+     */
+    private static final long FIRST_RETRY_DELAY_MILLIS = 50;
+
+    /**
+     * Сколько байтов журнала читать за раз.
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PhoneBook phoneBook;
+    private final File logFile;
+
+    /**
+     * Журнал основной книжечки или null, пока его нет.
+     */
+    private FileChannel log;
+
+    /**
+     * С какого места журнала читать дальше.
+     */
+    private long offset;
+
+    /**
+     * Сколько испорченных строк журнала пропущено.
+     */
+    private volatile long skippedLines;
+
+    /**
+     * Номер последнего применённого изменения.
+     */
+    private volatile long appliedSequence;
+
+    /**
+     * Сколько миллисекунд прошло от записи до применения последнего изменения.
+     */
+    private volatile long lastApplyDelayMillis;
+
+    /**
+     * Поток, который периодически дочитывает журнал, или null.
+     */
+    private ScheduledExecutorService tailer;
+
+    /**
+     * Открыть реплику книжечки.
+     *
+     * @param path   путь к данным основной книжечки.
+     * @param shards число сегментов основной книжечки.
+     * @throws IOException если не получилось прочитать снимок или журнал.
+     */
+    public PhoneBookReplica(String path, int shards) throws IOException {
+        logFile = MutationLog.fileFor(new File(FormatDataChecker.makeNotBlank(path)));
+        openLog();
+        offset = Objects.isNull(log) ? 0 : log.size();
+
+        PhoneBook loaded = null;
+        long delay = FIRST_RETRY_DELAY_MILLIS;
+        for (int attempt = 1; Objects.isNull(loaded); attempt++) {
+            try {
+                loaded = new PhoneBook(path, shards, true);
+            } catch (IOException ex) {
+                if (attempt == LOAD_ATTEMPTS) {
+                    closeLog();
+                    throw ex;
+                }
+                logger.warn("Снимок книжечки не прочитался, пробуем ещё раз через " + delay + " мс: "
+                        + ex.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    closeLog();
+                    throw new InterruptedIOException("Открытие реплики прервано.");
+                }
+                delay *= 2;
+            }
+        }
+        phoneBook = loaded;
+        poll();
+    }
+
+    /**
+     * @return книжечка реплики. Её можно только читать.
+     */
+    public PhoneBook getPhoneBook() {
+        return phoneBook;
+    }
+
+    /**
+     * Дочитать журнал и применить новые изменения.
+     * Журнал читается кусками не больше {@link #CHUNK_SIZE}, если в кусок не влезает
+     * ни одной целой строки, он увеличивается. Испорченные строки пропускаются.
+     *
+     * @return сколько изменений применено.
+     * @throws IOException при ошибке чтения журнала.
+     */
+    public synchronized int poll() throws IOException {
+        if (Objects.isNull(log) && !openLog()) {
+            return 0;
+        }
+
+        int applied = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long size = log.size();
+        while (offset < size) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), size - offset));
+            while (buffer.hasRemaining() && log.read(buffer, offset + buffer.position()) >= 0) {
+                // читаем кусок целиком
+            }
+
+            long chunkStart = offset;
+            applied += applyLines(buffer.array(), buffer.position());
+            if (offset == chunkStart) {
+                if (buffer.position() < buffer.capacity()) {
+                    // недописанная строка останется до следующего раза
+                    break;
+                }
+                // строка длиннее куска
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Применить целые строки из куска журнала, прочитанного с {@link #offset}.
+     * Место в журнале сдвигается после каждой строки.
+     *
+     * @return сколько изменений применено.
+     */
+    private int applyLines(byte[] bytes, int length) {
+        int applied = 0;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+
+            String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+            offset += i + 1 - lineStart;
+            lineStart = i + 1;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            MutationLog.Entry entry;
+            try {
+                entry = MutationLog.parse(line, mapper);
+            } catch (IOException ex) {
+                skippedLines++;
+                logger.warn("Испорченная строка журнала пропущена: " + ex.getMessage());
+                continue;
+            }
+
+            phoneBook.applyMutation(entry);
+            appliedSequence = entry.sequence;
+            lastApplyDelayMillis = System.currentTimeMillis() - entry.time;
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Дочитывать журнал в фоне.
+     *
+     * @param intervalMillis как часто проверять журнал.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (!Objects.isNull(tailer)) {
+            return;
+        }
+
+        tailer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "replica-tailer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        tailer.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (IOException | RuntimeException ex) {
+                // исключение из задачи отменило бы все следующие проверки
+                logger.error("Не получилось дочитать журнал: " + ex.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Узнать, насколько реплика отстаёт от основной книжечки.
+     *
+     * @return отставание реплики.
+     * @throws IOException если не получилось узнать размер журнала.
+     */
+    public ReplicaLag getLag() throws IOException {
+        long pending;
+        synchronized (this) {
+            pending = Objects.isNull(log) ? 0 : Math.max(0, log.size() - offset);
+        }
+        return new ReplicaLag(appliedSequence, pending, lastApplyDelayMillis, skippedLines);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (!Objects.isNull(tailer)) {
+                tailer.shutdownNow();
+            }
+            closeLog();
+        }
+    }
+
+    /**
+     * Открыть журнал только для чтения, если он уже есть.
+     *
+     * @return открыт ли журнал.
+     */
+    private boolean openLog() throws IOException {
+        try {
+            log = FileChannel.open(logFile.toPath(), StandardOpenOption.READ);
+            return true;
+        } catch (NoSuchFileException ex) {
+            return false;
+        }
+    }
+
+    private void closeLog() throws IOException {
+        if (!Objects.isNull(log)) {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package backend;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кеш результатов поиска с вытеснением давно не используемых запросов.
+ * Каждый результат помнит поколение книги, для которого он посчитан.
+ * Книга увеличивает поколение при любом изменении,
+ * так что результаты старых поколений никогда не возвращаются.
+ */
+class QueryCache {
+    /**
+     * Сколько запросов помнит кеш по умолчанию.
+     */
+    static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Результаты длиннее этого не кешируются, чтобы кеш не держал в памяти пол-книги.
+     */
+    static final int MAX_CACHED_RESULT = 1024;
+
+    /**
+     * Примерный объём одной записи кеша без ссылок на контакты: элемент карты,
+     * сама запись, список результата и заголовок его массива.
+     */
+    private static final long ENTRY_OVERHEAD = 160;
+
+    /**
+     * Примерный объём одной ссылки на контакт в списке результата.
+     */
+    private static final long REFERENCE_BYTES = 8;
+
+    private final int capacity;
+    private final Map<String, CachedResult> entries;
+
+    /**
+     * Примерный объём памяти под все запомненные результаты.
+     */
+    private long retainedBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    QueryCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                if (size() > QueryCache.this.capacity) {
+                    evictions++;
+                    retainedBytes -= eldest.getValue().bytes;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Достать результат запроса.
+     *
+     * @param key        нормализованный запрос.
+     * @param generation текущее поколение книги.
+     * @return результат или null, если его нет или он устарел.
+     */
+    synchronized List<Contact> get(String key, long generation) {
+        CachedResult entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        if (entry.generation != generation) {
+            entries.remove(key);
+            retainedBytes -= entry.bytes;
+            invalidations++;
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.contacts;
+    }
+
+    /**
+     * Запомнить результат запроса.
+     *
+     * @param key        нормализованный запрос.
+     * @param generation поколение книги, для которого посчитан результат.
+     * @param contacts   результат. Его нельзя менять после передачи в кеш.
+     */
+    synchronized void put(String key, long generation, List<Contact> contacts) {
+        if (capacity > 0 && contacts.size() <= MAX_CACHED_RESULT) {
+            CachedResult entry = new CachedResult(generation, contacts,
+                    ENTRY_OVERHEAD + 40 + 2L * key.length() + REFERENCE_BYTES * contacts.size());
+            retainedBytes += entry.bytes;
+            CachedResult previous = entries.put(key, entry);
+            if (previous != null) {
+                retainedBytes -= previous.bytes;
+            }
+        }
+    }
+
+    /**
+     * @return примерный объём памяти под запомненные результаты в байтах,
+     * не считая самих контактов: они и так лежат в книге.
+     */
+    synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * @return текущие счётчики кеша.
+     */
+    synchronized CacheStatistics statistics() {
+        return new CacheStatistics(hits, misses, evictions, invalidations, entries.size());
+    }
+
+    private static class CachedResult {
+        final long generation;
+        final List<Contact> contacts;
+        final long bytes;
+
+        CachedResult(long generation, List<Contact> contacts, long bytes) {
+            this.generation = generation;
+            this.contacts = contacts;
+            this.bytes = bytes;
+        }
+    }
+}
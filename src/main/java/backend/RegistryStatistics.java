@@ -0,0 +1,98 @@
+package backend;
+
+/**
+ * Счётчики реестра книжечек.
+ */
+public class RegistryStatistics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long totalLoadNanos;
+    private final long maxLoadNanos;
+    private final int openBooks;
+    private final long footprint;
+    private final long budget;
+
+    RegistryStatistics(long hits, long misses, long evictions, long totalLoadNanos, long maxLoadNanos,
+                       int openBooks, long footprint, long budget) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.totalLoadNanos = totalLoadNanos;
+        this.maxLoadNanos = maxLoadNanos;
+        this.openBooks = openBooks;
+        this.footprint = footprint;
+        this.budget = budget;
+    }
+
+    /**
+     * @return сколько раз книжечка уже была в памяти.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return сколько раз книжечку пришлось читать с диска.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return сколько книжечек выгружено из памяти из-за нехватки места.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return средняя длительность загрузки книжечки в наносекундах.
+     */
+    public long getAverageLoadNanos() {
+        return misses == 0 ? 0 : totalLoadNanos / misses;
+    }
+
+    /**
+     * @return самая долгая загрузка книжечки в наносекундах.
+     */
+    public long getMaxLoadNanos() {
+        return maxLoadNanos;
+    }
+
+    /**
+     * @return сколько книжечек сейчас в памяти.
+     */
+    public int getOpenBooks() {
+        return openBooks;
+    }
+
+    /**
+     * @return примерный объём памяти под открытые книжечки в байтах.
+     */
+    public long getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * @return сколько памяти разрешено занимать книжечкам в байтах.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return доля обращений, когда книжечка уже была в памяти.
+     */
+    public double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("попаданий: %d, загрузок: %d (%.1f%% попаданий), выгружено: %d, " +
+                        "загрузка в среднем %.2f мс, максимум %.2f мс, открыто: %d, памяти: %d из %d КБ",
+                hits, misses, getHitRate() * 100, evictions,
+                getAverageLoadNanos() / 1e6, maxLoadNanos / 1e6, openBooks, footprint / 1024, budget / 1024);
+    }
+}
@@ -0,0 +1,107 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Итоги повтора записи: пропускная способность и задержки, всего и по операциям.
+ */
+public class ReplayReport {
+    /**
+     * Отсортированные задержки всех операций в наносекундах.
+     */
+    private final long[] latencies;
+
+    /**
+     * Отсортированные задержки по видам операций.
+     */
+    private final Map<String, long[]> byOperation = new TreeMap<>();
+
+    private final int failures;
+
+    /**
+     * Длительность всего повтора в наносекундах.
+     */
+    private final long elapsed;
+
+    ReplayReport(String[] operations, long[] latencies, int failures, long elapsed) {
+        this.latencies = latencies.clone();
+        Arrays.sort(this.latencies);
+        this.failures = failures;
+        this.elapsed = elapsed;
+
+        Map<String, List<Long>> grouped = new TreeMap<>();
+        for (int i = 0; i < operations.length; i++) {
+            grouped.computeIfAbsent(operations[i], key -> new ArrayList<>()).add(latencies[i]);
+        }
+        for (var entry : grouped.entrySet()) {
+            long[] sorted = entry.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            byOperation.put(entry.getKey(), sorted);
+        }
+    }
+
+    /**
+     * @return сколько операций повторено.
+     */
+    public int getOperations() {
+        return latencies.length;
+    }
+
+    /**
+     * @return сколько операций закончились ошибкой.
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return операций в секунду.
+     */
+    public double getThroughput() {
+        return elapsed == 0 ? 0 : latencies.length * 1e9 / elapsed;
+    }
+
+    /**
+     * @param percentile перцентиль от 0 до 100.
+     * @return задержка всех операций на этом перцентиле в микросекундах.
+     */
+    public double getLatencyMicros(double percentile) {
+        return percentile(latencies, percentile);
+    }
+
+    /**
+     * @param operation  вид операции, например {@link WorkloadRecorder#FIND_BY_FULL_NAME}.
+     * @param percentile перцентиль от 0 до 100.
+     * @return задержка операций этого вида на этом перцентиле в микросекундах.
+     */
+    public double getLatencyMicros(String operation, double percentile) {
+        return percentile(byOperation.getOrDefault(operation, new long[0]), percentile);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e3;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(
+                "операций: %d, ошибок: %d, в секунду: %.0f, p50: %.1f мкс, p99: %.1f мкс, max: %.1f мкс",
+                latencies.length, failures, getThroughput(),
+                getLatencyMicros(50), getLatencyMicros(99), getLatencyMicros(100)));
+        for (var entry : byOperation.entrySet()) {
+            long[] sorted = entry.getValue();
+            report.append(String.format("%n  %-6s %8d  p50: %.1f мкс, p99: %.1f мкс, max: %.1f мкс",
+                    entry.getKey(), sorted.length,
+                    percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 100)));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package backend;
+
+/**
+ * Отставание реплики от основной книжечки.
+ */
+public class ReplicaLag {
+    private final long appliedSequence;
+    private final long pendingBytes;
+    private final long lastApplyDelayMillis;
+    private final long skippedLines;
+
+    ReplicaLag(long appliedSequence, long pendingBytes, long lastApplyDelayMillis, long skippedLines) {
+        this.appliedSequence = appliedSequence;
+        this.pendingBytes = pendingBytes;
+        this.lastApplyDelayMillis = lastApplyDelayMillis;
+        this.skippedLines = skippedLines;
+    }
+
+    /**
+     * @return номер последнего применённого изменения.
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * @return сколько байтов журнала ещё не прочитано.
+     */
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * @return сколько миллисекунд прошло от записи до применения последнего изменения.
+     */
+    public long getLastApplyDelayMillis() {
+        return lastApplyDelayMillis;
+    }
+
+    /**
+     * @return сколько испорченных строк журнала пропущено.
+     */
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * @return догнала ли реплика всё, что уже записано в журнал.
+     */
+    public boolean isCaughtUp() {
+        return pendingBytes == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "применено изменений: " + appliedSequence +
+                ", не прочитано байтов журнала: " + pendingBytes +
+                ", задержка последнего изменения: " + lastApplyDelayMillis + " мс" +
+                ", пропущено испорченных строк: " + skippedLines;
+    }
+}
@@ -0,0 +1,74 @@
+package backend;
+
+import java.util.List;
+
+/**
+ * Результат поиска перебором вместе со статистикой перебора.
+ */
+public class ScanResult {
+    private final List<Contact> contacts;
+    private final long scanned;
+    private final int chunks;
+    private final boolean parallel;
+    private final boolean truncated;
+    private final long elapsedNanos;
+
+    ScanResult(List<Contact> contacts, long scanned, int chunks,
+               boolean parallel, boolean truncated, long elapsedNanos) {
+        this.contacts = contacts;
+        this.scanned = scanned;
+        this.chunks = chunks;
+        this.parallel = parallel;
+        this.truncated = truncated;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return найденные контакты.
+     */
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    /**
+     * @return сколько контактов было проверено.
+     */
+    public long getScanned() {
+        return scanned;
+    }
+
+    /**
+     * @return на сколько кусков разбивалась книга.
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return шёл ли перебор в несколько потоков.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @return остановился ли перебор раньше времени из-за ограничения на число результатов.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return сколько длился перебор в наносекундах.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("найдено: %d, проверено: %d, кусков: %d, %s, %.3f мс%s",
+                contacts.size(), scanned, chunks, parallel ? "параллельно" : "в одном потоке",
+                elapsedNanos / 1e6, truncated ? ", остановлен по ограничению" : "");
+    }
+}
@@ -0,0 +1,16 @@
+package backend;
+
+/**
+ * Поле, по которому можно искать по мере набора.
+ */
+public enum SearchField {
+    /**
+     * Начало ФИО.
+     */
+    FULL_NAME,
+
+    /**
+     * Начало номера телефона.
+     */
+    PHONE_NUMBER
+}
@@ -0,0 +1,151 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static backend.FormatDataChecker.transformStringForSearch;
+
+/**
+ * Поиск по мере набора.
+ * Сессия помнит кандидатов прошлого запроса вместе с их ключами в индексе.
+ * Если новый запрос продолжает прошлый, кандидаты просто отсеиваются,
+ * и работа пропорциональна числу оставшихся кандидатов.
+ * Если запрос стал короче или другим, или книга с тех пор изменилась,
+ * кандидаты заново берутся из индекса.
+ * <p>
+ * С ограничением на число контактов индекс перебирается только до первых
+ * limit + 1 контактов. Сужать можно только полный набор кандидатов,
+ * а обрезанный просто набирается из индекса заново, что тоже стоит не больше limit.
+ * <p>
+ * Сессия не потокобезопасна: она рассчитана на одного набирающего.
+ */
+public class SearchSession {
+    private final PhoneBook phoneBook;
+    private final SearchField field;
+
+    /**
+     * Сколько контактов возвращать, 0 - все.
+     */
+    private final int limit;
+
+    /**
+     * Нормализованный прошлый запрос или null, если запросов ещё не было.
+     */
+    private String query;
+
+    /**
+     * Поколение книги, для которого найдены кандидаты.
+     */
+    private long generation;
+
+    /**
+     * Кандидаты прошлого запроса.
+     */
+    private List<ContactIndex.Posting> candidates = new ArrayList<>();
+
+    /**
+     * Все ли кандидаты прошлого запроса собраны, или перебор индекса остановился на ограничении.
+     */
+    private boolean complete;
+
+    private boolean narrowed;
+    private long lastElapsedNanos;
+
+    SearchSession(PhoneBook phoneBook, SearchField field, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Ограничение не может быть отрицательным!");
+        }
+
+        this.phoneBook = phoneBook;
+        this.field = field;
+        this.limit = limit;
+    }
+
+    /**
+     * Обновить запрос.
+     *
+     * @param text весь набранный текст.
+     * @return подходящие контакты в порядке ключей индекса, не больше ограничения.
+     */
+    public List<Contact> update(String text) {
+        long start = System.nanoTime();
+        String normalized = transformStringForSearch(Objects.isNull(text) ? "" : text);
+        long current = phoneBook.getGeneration();
+
+        narrowed = complete && !Objects.isNull(query) && current == generation && normalized.startsWith(query);
+        if (narrowed) {
+            if (!normalized.equals(query)) {
+                List<ContactIndex.Posting> left = new ArrayList<>();
+                for (var candidate : candidates) {
+                    if (candidate.key.startsWith(normalized)) {
+                        left.add(candidate);
+                    }
+                }
+                candidates = left;
+            }
+        } else {
+            candidates = phoneBook.postings(field, normalized, limit);
+            generation = current;
+        }
+        query = normalized;
+
+        Set<Contact> found = new LinkedHashSet<>();
+        for (var candidate : candidates) {
+            found.add(candidate.contact);
+        }
+        complete = limit == 0 || found.size() <= limit;
+
+        List<Contact> result = new ArrayList<>(found);
+        if (!complete) {
+            result.subList(limit, result.size()).clear();
+        }
+        lastElapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * @return по какому полю идёт поиск.
+     */
+    public SearchField getField() {
+        return field;
+    }
+
+    /**
+     * @return сколько контактов возвращать, 0 - все.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return найдены ли в последнем запросе все подходящие контакты,
+     * а не только первые по ограничению.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return сколько кандидатов осталось после последнего запроса.
+     */
+    public int getCandidateCount() {
+        return candidates.size();
+    }
+
+    /**
+     * @return был ли последний запрос обработан сужением прошлых кандидатов.
+     */
+    public boolean wasNarrowed() {
+        return narrowed;
+    }
+
+    /**
+     * @return сколько длилась обработка последнего запроса в наносекундах.
+     */
+    public long getLastElapsedNanos() {
+        return lastElapsedNanos;
+    }
+}
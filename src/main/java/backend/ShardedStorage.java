@@ -0,0 +1,202 @@
+package backend;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Хранение контактов в нескольких JSON файлах-сегментах.
+ * Сегмент контакта выбирается по хешу его ФИО.
+ * При сохранении переписываются только сегменты, в которых что-то поменялось,
+ * а при открытии книги сегменты читаются параллельно.
+ * Каждый сегмент пишется во временный файл и потом подменяет старый,
+ * так что читатель из другого процесса не увидит обрезанный сегмент.
+ * <p>
+ * Число сегментов входит в имена файлов, поэтому книгу нужно открывать
+ * с тем же числом сегментов, с каким её создавали.
+ */
+class ShardedStorage implements ContactStorage {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Файлы сегментов.
+     */
+    private final File[] files;
+
+    /**
+     * Контакты каждого сегмента.
+     */
+    private final List<List<Contact>> shards = new ArrayList<>();
+
+    /**
+     * Сегменты, изменённые с последнего сохранения.
+     */
+    private final boolean[] dirty;
+
+    /**
+     * Книжечка только читает сегменты и ничего не создаёт.
+     */
+    private final boolean readOnly;
+
+    /**
+     * @param file     основной файл книги, рядом с ним лягут сегменты.
+     * @param count    число сегментов.
+     * @param readOnly книжечка только для чтения.
+     */
+    ShardedStorage(File file, int count, boolean readOnly) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Сегментов должно быть больше нуля!");
+        }
+
+        this.readOnly = readOnly;
+        files = new File[count];
+        dirty = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            files[i] = new File(file.getPath() + ".shard-" + i + "-of-" + count);
+            shards.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Номер сегмента контакта.
+     *
+     * @param contact контакт.
+     * @param count   число сегментов.
+     * @return номер сегмента от 0 до count - 1.
+     */
+    static int shardOf(Contact contact, int count) {
+        int hash = contact.fullNameKey().hashCode();
+        // хеш строк плохо перемешан в младших битах, размешиваем как в MurmurHash3
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, count);
+    }
+
+    @Override
+    public List<Contact> load() throws IOException {
+        List<Callable<List<Contact>>> tasks = new ArrayList<>();
+        for (var file : files) {
+            tasks.add(() -> read(file));
+        }
+
+        List<Contact> contacts = new ArrayList<>();
+        List<List<Contact>> loaded = runAll(tasks);
+        for (int i = 0; i < files.length; i++) {
+            shards.set(i, loaded.get(i));
+            dirty[i] = false;
+            contacts.addAll(loaded.get(i));
+        }
+        return contacts;
+    }
+
+    @Override
+    public void added(Contact contact) {
+        int shard = shardOf(contact, files.length);
+        shards.get(shard).add(contact);
+        dirty[shard] = true;
+    }
+
+    @Override
+    public void removed(Contact contact) {
+        int shard = shardOf(contact, files.length);
+        shards.get(shard).remove(contact);
+        dirty[shard] = true;
+    }
+
+    @Override
+    public void save(List<Contact> contacts) throws IOException {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            if (dirty[i]) {
+                final int shard = i;
+                tasks.add(() -> {
+                    File temporary = new File(files[shard].getPath() + ".tmp");
+                    mapper.writeValue(temporary, shards.get(shard));
+                    Files.move(temporary.toPath(), files[shard].toPath(),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    return shard;
+                });
+            }
+        }
+
+        for (int shard : runAll(tasks)) {
+            dirty[shard] = false;
+        }
+    }
+
+    /**
+     * Сегменты читаются по очереди, поэтому порядок снимка - сегмент за сегментом,
+     * а не порядок, в котором контакты добавлялись в книжечку.
+     */
+    @Override
+    public List<Contact> inLoadOrder(List<Contact> contacts) {
+        List<Contact> ordered = new ArrayList<>(contacts.size());
+        for (var shard : shards) {
+            ordered.addAll(shard);
+        }
+        return ordered;
+    }
+
+    @Override
+    public List<File> files() {
+        return List.of(files);
+    }
+
+    /**
+     * Прочитать один сегмент. Если файла нет, он создаётся пустым,
+     * кроме книжечки только для чтения.
+     */
+    private List<Contact> read(File file) throws IOException {
+        boolean created = !readOnly && file.createNewFile();
+        if (created || !file.isFile() || file.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(mapper.readValue(file, new TypeReference<List<Contact>>() { }));
+    }
+
+    /**
+     * Выполнить задачи в общем fork-join пуле и собрать их результаты по порядку.
+     */
+    static <T> List<T> runAll(List<Callable<T>> tasks) throws IOException {
+        if (tasks.size() == 1) {
+            try {
+                return List.of(tasks.get(0).call());
+            } catch (IOException | RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Работа с файлами книжечки прервана.");
+        }
+        return results;
+    }
+}
@@ -0,0 +1,74 @@
+package backend;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хранение всех контактов одним JSON файлом.
+ * Любое изменение переписывает файл целиком: сначала во временный файл,
+ * который потом подменяет основной, так что читатель из другого процесса
+ * видит либо старый снимок, либо новый, но никогда не обрезанный.
+ */
+class SingleFileStorage implements ContactStorage {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final File file;
+    private final boolean readOnly;
+
+    /**
+     * @param file     файл с контактами. Если его нет, он будет создан, кроме книжечки только для чтения.
+     * @param readOnly книжечка только читает файл и ничего не создаёт.
+     */
+    SingleFileStorage(File file, boolean readOnly) {
+        this.file = file;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public List<Contact> load() throws IOException {
+        boolean created = !readOnly && file.createNewFile();
+        if (!created && file.isFile() && file.length() > 0) {
+            try (FileReader reader = new FileReader(file)) {
+                return new ArrayList<>(mapper.readValue(reader, new TypeReference<List<Contact>>() { }));
+            }
+        }
+
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void added(Contact contact) {
+    }
+
+    @Override
+    public void removed(Contact contact) {
+    }
+
+    @Override
+    public void save(List<Contact> contacts) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileWriter writer = new FileWriter(temporary, false)) {
+            mapper.writeValue(writer, contacts);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public List<Contact> inLoadOrder(List<Contact> contacts) {
+        return contacts;
+    }
+
+    @Override
+    public List<File> files() {
+        return List.of(file);
+    }
+}
@@ -0,0 +1,178 @@
+package backend;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Перевод нормализованных строк из кириллицы в латиницу и обратно,
+ * чтобы контакт, записанный кириллицей, находился и по запросу латиницей.
+ * <p>
+ * Латиницей одно и то же имя пишут по-разному, поэтому написаний несколько:
+ * <ul>
+ *     <li>привычное, как в старых загранпаспортах и на визитках: й - y, ю - yu, я - ya, ъ пропускается;</li>
+ *     <li>как в загранпаспортах с 2013 года (ICAO 9303): й - i, ю - iu, я - ia, ъ - ie;</li>
+ *     <li>как часто набирают операторы: щ - sch, а -ий и -ый на конце - y (dmitry).</li>
+ * </ul>
+ * Обратно переводится одним способом, жадно, сначала самые длинные сочетания:
+ * shch, zh, kh, ts, ch, sh, yu, ya. Это только догадка: записанное латиницей
+ * Maria станет «мариа», так что запрос «мария» такой контакт не найдёт.
+ * Строки должны быть уже нормализованы {@link FormatDataChecker#transformStringForSearch(String)}.
+ */
+final class Transliteration {
+    private static final Map<Character, String> TO_LATIN = new HashMap<>();
+    private static final Map<Character, String> TO_PASSPORT_LATIN = new HashMap<>();
+    private static final Map<Character, String> TO_COMMON_LATIN = new HashMap<>();
+    private static final Map<String, String> TO_CYRILLIC = new HashMap<>();
+
+    /**
+     * Самое длинное латинское сочетание для одной кириллической буквы.
+     */
+    private static final int LONGEST_LATIN = 4;
+
+    /**
+     * Сколько написаний латиницей возвращает {@link #toLatinSpellings(String)}.
+     */
+    static final int LATIN_SPELLINGS = 3;
+
+    static {
+        String[][] letters = {
+                {"а", "a"}, {"б", "b"}, {"в", "v"}, {"г", "g"}, {"д", "d"}, {"е", "e"}, {"ё", "e"},
+                {"ж", "zh"}, {"з", "z"}, {"и", "i"}, {"й", "y"}, {"к", "k"}, {"л", "l"}, {"м", "m"},
+                {"н", "n"}, {"о", "o"}, {"п", "p"}, {"р", "r"}, {"с", "s"}, {"т", "t"}, {"у", "u"},
+                {"ф", "f"}, {"х", "kh"}, {"ц", "ts"}, {"ч", "ch"}, {"ш", "sh"}, {"щ", "shch"},
+                {"ъ", ""}, {"ы", "y"}, {"ь", ""}, {"э", "e"}, {"ю", "yu"}, {"я", "ya"},
+                {"і", "i"}, {"ї", "yi"}, {"є", "ye"}, {"ґ", "g"},
+        };
+        for (var letter : letters) {
+            TO_LATIN.put(letter[0].charAt(0), letter[1]);
+        }
+        TO_PASSPORT_LATIN.putAll(TO_LATIN);
+        TO_COMMON_LATIN.putAll(TO_LATIN);
+
+        String[][] passport = {
+                {"й", "i"}, {"ъ", "ie"}, {"ю", "iu"}, {"я", "ia"}, {"ї", "i"}, {"є", "ie"},
+        };
+        for (var letter : passport) {
+            TO_PASSPORT_LATIN.put(letter[0].charAt(0), letter[1]);
+        }
+
+        String[][] common = {
+                {"щ", "sch"},
+        };
+        for (var letter : common) {
+            TO_COMMON_LATIN.put(letter[0].charAt(0), letter[1]);
+        }
+
+        String[][] combinations = {
+                {"shch", "щ"}, {"zh", "ж"}, {"kh", "х"}, {"ts", "ц"}, {"ch", "ч"}, {"sh", "ш"},
+                {"yu", "ю"}, {"ya", "я"}, {"yo", "е"},
+                {"a", "а"}, {"b", "б"}, {"v", "в"}, {"g", "г"}, {"d", "д"}, {"e", "е"}, {"z", "з"},
+                {"i", "и"}, {"k", "к"}, {"l", "л"}, {"m", "м"}, {"n", "н"}, {"o", "о"}, {"p", "п"},
+                {"r", "р"}, {"s", "с"}, {"t", "т"}, {"u", "у"}, {"f", "ф"}, {"h", "х"}, {"c", "к"},
+                {"j", "дж"}, {"q", "к"}, {"w", "в"}, {"x", "кс"},
+        };
+        for (var combination : combinations) {
+            TO_CYRILLIC.put(combination[0], combination[1]);
+        }
+    }
+
+    private Transliteration() {
+    }
+
+    /**
+     * Перевести кириллицу в латиницу привычным написанием. Остальные символы остаются как есть.
+     *
+     * @param normalized нормализованная строка.
+     * @return строка латиницей.
+     */
+    static String toLatin(String normalized) {
+        return translate(normalized, TO_LATIN);
+    }
+
+    /**
+     * Все написания латиницей: привычное, паспортное и как набирают операторы.
+     * Их всегда {@link #LATIN_SPELLINGS}, некоторые могут совпадать.
+     *
+     * @param normalized нормализованное слово, например одна часть ФИО.
+     * @return написания латиницей, привычное первым.
+     */
+    static List<String> toLatinSpellings(String normalized) {
+        String usual = toLatin(normalized);
+        if (usual.equals(normalized)) {
+            return List.of(normalized, normalized, normalized);
+        }
+
+        String passport = translate(normalized, TO_PASSPORT_LATIN);
+        String common;
+        if (normalized.endsWith("ий") || normalized.endsWith("ый")) {
+            common = translate(normalized.substring(0, normalized.length() - 2), TO_COMMON_LATIN) + "y";
+        } else {
+            common = translate(normalized, TO_COMMON_LATIN);
+        }
+        return List.of(usual, passport, common);
+    }
+
+    private static String translate(String normalized, Map<Character, String> table) {
+        StringBuilder result = null;
+        for (int i = 0; i < normalized.length(); i++) {
+            String latin = table.get(normalized.charAt(i));
+            if (latin != null && result == null) {
+                result = new StringBuilder(normalized.length() + 8).append(normalized, 0, i);
+            }
+            if (result != null) {
+                if (latin != null) {
+                    result.append(latin);
+                } else {
+                    result.append(normalized.charAt(i));
+                }
+            }
+        }
+        return result == null ? normalized : result.toString();
+    }
+
+    /**
+     * Перевести латиницу в кириллицу. Остальные символы остаются как есть.
+     * y после согласной становится ы, иначе й.
+     *
+     * @param normalized нормализованная строка.
+     * @return строка кириллицей.
+     */
+    static String toCyrillic(String normalized) {
+        StringBuilder result = null;
+        for (int i = 0; i < normalized.length(); ) {
+            char c = normalized.charAt(i);
+            if (c < 'a' || c > 'z') {
+                if (result != null) {
+                    result.append(c);
+                }
+                i++;
+                continue;
+            }
+
+            if (result == null) {
+                result = new StringBuilder(normalized.length()).append(normalized, 0, i);
+            }
+
+            if (c == 'y' && !TO_CYRILLIC.containsKey(normalized.substring(i, Math.min(i + 2, normalized.length())))) {
+                result.append(i > 0 && isConsonant(normalized.charAt(i - 1)) ? 'ы' : 'й');
+                i++;
+                continue;
+            }
+
+            for (int length = Math.min(LONGEST_LATIN, normalized.length() - i); length > 0; length--) {
+                String cyrillic = TO_CYRILLIC.get(normalized.substring(i, i + length));
+                if (cyrillic != null) {
+                    result.append(cyrillic);
+                    i += length;
+                    break;
+                }
+            }
+        }
+        return result == null ? normalized : result.toString();
+    }
+
+    private static boolean isConsonant(char c) {
+        return c >= 'a' && c <= 'z' && "aeiouy".indexOf(c) < 0;
+    }
+}
@@ -0,0 +1,171 @@
+package backend;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись того, что делали с книжечкой, чтобы потом повторить это через {@link WorkloadReplayer}.
+ * <p>
+ * Одна строка - одна операция: сколько микросекунд прошло с начала записи,
+ * операция и её аргументы через табуляцию. Табуляции, переводы строк и
+ * обратные косые черты в аргументах экранируются обратной косой чертой.
+ */
+public class WorkloadRecorder implements Closeable {
+    /**
+     * Добавление контакта: имя, фамилия, отчество, адрес, день рождения, е-мэйл, телефоны.
+     */
+    public static final String ADD = "ADD";
+
+    /**
+     * Удаление контакта: имя, фамилия, отчество.
+     */
+    public static final String DELETE = "DEL";
+
+    public static final String FIND_BY_FULL_NAME = "FIO";
+    public static final String FIND_BY_PHONE = "PHONE";
+    public static final String FIND_BY_CALLER_ID = "CALLER";
+    public static final String FIND_BY_BIRTHDAY = "BDAY";
+    public static final String ALL = "ALL";
+
+    /**
+     * Команда консоли. При повторе не выполняется, а только показывает,
+     * что делал человек за консолью.
+     */
+    public static final String COMMAND = "CMD";
+
+    private final Writer writer;
+    private final long start = System.nanoTime();
+
+    /**
+     * Начать запись в файл. Если файл есть, он перезаписывается.
+     *
+     * @param path файл записи.
+     * @throws IOException если файл не получилось открыть.
+     */
+    public WorkloadRecorder(String path) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Path.of(path)),
+                StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Записать операцию.
+     *
+     * @param operation операция.
+     * @param arguments её аргументы.
+     */
+    public void record(String operation, String... arguments) {
+        StringBuilder line = new StringBuilder(64);
+        line.append((System.nanoTime() - start) / 1000).append('\t').append(operation);
+        for (var argument : arguments) {
+            line.append('\t');
+            escape(argument, line);
+        }
+        line.append('\n');
+
+        synchronized (writer) {
+            try {
+                writer.write(line.toString());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Записать добавление контакта.
+     */
+    void recordAdd(String name, String surname, String patronymic, String address,
+                   List<String> phoneNumbers, String birthday, String email) {
+        List<String> arguments = new ArrayList<>(List.of(
+                nullToEmpty(name), nullToEmpty(surname), nullToEmpty(patronymic), nullToEmpty(address),
+                nullToEmpty(birthday), nullToEmpty(email)));
+        if (phoneNumbers != null) {
+            arguments.addAll(phoneNumbers);
+        }
+        record(ADD, arguments.toArray(new String[0]));
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Разобрать строку записи.
+     *
+     * @param line строка без перевода строки.
+     * @return смещение в микросекундах, операция и аргументы.
+     * @throws IOException если строка испорчена.
+     */
+    static String[] parse(String line) throws IOException {
+        String[] parts = line.split("\t", -1);
+        if (parts.length < 2) {
+            throw new IOException("Испорченная строка записи: " + line);
+        }
+
+        for (int i = 2; i < parts.length; i++) {
+            parts[i] = unescape(parts[i]);
+        }
+        return parts;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                out.append(c);
+                continue;
+            }
+
+            char next = value.charAt(++i);
+            out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return out.toString();
+    }
+}
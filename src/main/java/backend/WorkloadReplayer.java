@@ -0,0 +1,138 @@
+package backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Повтор записи {@link WorkloadRecorder} на книжечке.
+ * <p>
+ * Операции раздаются нескольким потокам по порядку записи. Можно повторять
+ * в исходном темпе, когда каждая операция ждёт своего момента от начала записи,
+ * или так быстро, как получится. В исходном темпе задержка считается от того момента,
+ * когда операция должна была начаться, а не когда до неё дошла очередь:
+ * если книжечка не успевает за записью, ожидание в очереди тоже попадает в задержку. Добавления и удаления меняют книжечку,
+ * поэтому повторять лучше на копии.
+ */
+public class WorkloadReplayer {
+    private WorkloadReplayer() {
+    }
+
+    /**
+     * Повторить запись.
+     *
+     * @param trace         файл записи.
+     * @param phoneBook     книжечка, на которой повторять.
+     * @param threads       сколько потоков выполняют операции.
+     * @param originalSpeed выдерживать ли исходный темп.
+     * @return пропускная способность и задержки.
+     * @throws IOException          если запись не получилось прочитать.
+     * @throws InterruptedException если повтор прервали.
+     */
+    public static ReplayReport replay(String trace, PhoneBook phoneBook, int threads, boolean originalSpeed)
+            throws IOException, InterruptedException {
+        List<String[]> operations = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(trace), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                String[] operation = WorkloadRecorder.parse(line);
+                if (!operation[1].equals(WorkloadRecorder.COMMAND)) {
+                    operations.add(operation);
+                }
+            }
+        }
+
+        int count = operations.size();
+        long[] latencies = new long[count];
+        String[] names = new String[count];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads));
+        long start = System.nanoTime();
+        try {
+            for (int t = 0; t < Math.max(1, threads); t++) {
+                workers.execute(() -> {
+                    for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                        String[] operation = operations.get(i);
+                        long begin;
+                        if (originalSpeed) {
+                            long due = start + TimeUnit.MICROSECONDS.toNanos(Long.parseLong(operation[0]));
+                            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                                LockSupport.parkNanos(wait);
+                            }
+                            begin = Math.max(due, start);
+                        } else {
+                            begin = System.nanoTime();
+                        }
+
+                        try {
+                            execute(phoneBook, operation);
+                        } catch (IOException | RuntimeException ex) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - begin;
+                        names[i] = operation[1];
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+        }
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        return new ReplayReport(names, latencies, failures.get(), elapsed);
+    }
+
+    /**
+     * Выполнить одну операцию записи.
+     */
+    private static void execute(PhoneBook phoneBook, String[] operation) throws IOException {
+        switch (operation[1]) {
+            case WorkloadRecorder.ADD:
+                phoneBook.addContact(operation[2], operation[3], operation[4], operation[5],
+                        new ArrayList<>(Arrays.asList(operation).subList(8, operation.length)),
+                        operation[6].isEmpty() ? null : LocalDate.parse(operation[6]), operation[7]);
+                break;
+            case WorkloadRecorder.DELETE:
+                Optional<Contact> contact = phoneBook.findContact(operation[2], operation[3], operation[4]);
+                if (contact.isPresent()) {
+                    phoneBook.deleteContact(contact.get());
+                }
+                break;
+            case WorkloadRecorder.FIND_BY_FULL_NAME:
+                phoneBook.findByFullName(operation[2]);
+                break;
+            case WorkloadRecorder.FIND_BY_PHONE:
+                phoneBook.findByPhoneNumber(operation[2]);
+                break;
+            case WorkloadRecorder.FIND_BY_CALLER_ID:
+                phoneBook.findByCallerId(operation[2]);
+                break;
+            case WorkloadRecorder.FIND_BY_BIRTHDAY:
+                phoneBook.findByBirthday(LocalDate.parse(operation[2]));
+                break;
+            case WorkloadRecorder.ALL:
+                phoneBook.getAllContacts();
+                break;
+            default:
+                throw new IOException("Неизвестная операция в записи: " + operation[1]);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package frontend.console;
 
 import backend.PhoneBook;
+import backend.WorkloadRecorder;
 
 import java.io.IOException;
 
@@ -19,7 +20,22 @@ public class Program {
                 end();
             }
         TextConsole textConsole = new TextConsole(phoneBook);
-        textConsole.run();
+        WorkloadRecorder recorder = null;
+        if (args.length > 0) {
+            recorder = new WorkloadRecorder(args[0]);
+            textConsole.setRecorder(recorder);
+        }
+        try {
+            textConsole.run();
+        } finally {
+            try {
+                phoneBook.close();
+            } finally {
+                if (recorder != null) {
+                    recorder.close();
+                }
+            }
+        }
 
         end();
     }
@@ -0,0 +1,32 @@
+package frontend.console;
+
+import backend.PhoneBook;
+import backend.ReplayReport;
+import backend.WorkloadReplayer;
+
+import java.io.IOException;
+
+/**
+ * Повтор записанной работы с книжечкой и замер пропускной способности и задержек.
+ * Записать работу можно, запустив {@link Program} с путём к файлу записи.
+ * <p>
+ * Аргументы: файл записи, путь к книжечке, число потоков,
+ * {@code real} для исходного темпа или {@code fast}, чтобы гнать без пауз.
+ * Добавления и удаления из записи меняют книжечку, так что лучше повторять на копии.
+ */
+public class ReplayProgram {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Нужны файл записи и путь к книжечке.");
+            return;
+        }
+
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        boolean originalSpeed = args.length > 3 && args[3].equalsIgnoreCase("real");
+
+        try (PhoneBook phoneBook = new PhoneBook(args[1])) {
+            ReplayReport report = WorkloadReplayer.replay(args[0], phoneBook, threads, originalSpeed);
+            System.out.println(report);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package frontend.console;
 import backend.Contact;
 import backend.FormatDataChecker;
 import backend.PhoneBook;
+import backend.WorkloadRecorder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -51,6 +52,11 @@ public class TextConsole {
      */
     private Contact currentContact = null;
 
+    /**
+     * Запись команд и операций с книжечкой или null, если она не ведётся.
+     */
+    private WorkloadRecorder recorder = null;
+
     /**
      * Конструктор текстовой консоли.
      * @param phoneBook телефонная книга,
@@ -68,6 +74,15 @@ public class TextConsole {
         logger.info("Текстовая консоль для телефонной книги создана.");
     }
 
+    /**
+     * Начать записывать команды консоли и операции с книжечкой.
+     * @param recorder куда записывать или null, чтобы перестать.
+     */
+    public void setRecorder(WorkloadRecorder recorder) {
+        this.recorder = recorder;
+        phoneBook.setRecorder(recorder);
+    }
+
     /**
      * Работа консоли - считывание и обработка команды.
      * @throws IOException
@@ -118,6 +133,9 @@ public class TextConsole {
      */
     private void handleCommand(String command) throws IOException {
         logger.info("Команда: "+command);
+        if (!Objects.isNull(recorder)) {
+            recorder.record(WorkloadRecorder.COMMAND, command);
+        }
         switch (command.trim().toLowerCase()) {
             case "0":
             case "info":
@@ -266,9 +284,7 @@ public class TextConsole {
             logger.warn("Введен контакт с уже существующим в книге ФИО. Контакт не создан.");
             System.out.println("Ай-яй! Дубликат! Контактик не был создан!");
         } else {
-
-            List<Contact> tmp = phoneBook.getAllContacts();
-            currentContact = tmp.get(tmp.size() - 1);
+            currentContact = phoneBook.findContact(name, surname, patronymic).orElseThrow();
             logger.info("Контакт создан: "+
                     currentContact.getSurname()+" "+currentContact.getName() + " "+currentContact.getPatronymic());
             logger.info("Контакт сохранён как текущий.");
@@ -354,6 +370,7 @@ public class TextConsole {
             System.out.println("1 - по ФИО");
             System.out.println("2 - по дате рождения");
             System.out.println("3 - по номеру телефона");
+            System.out.println("4 - кто звонит");
         }
 
         switch (in.nextLine().toLowerCase().trim()) {
@@ -385,6 +402,14 @@ public class TextConsole {
                 logger.info("Поиск по номеру телефона.");
                 founded = phoneBook.findByPhoneNumber(in.nextLine());
                 break;
+            case "4":
+            case "caller":
+            case "call":
+            case "звонок":
+            case "кто звонит":
+                logger.info("Поиск звонящего.");
+                founded = phoneBook.findByCallerId(in.nextLine());
+                break;
             case "":
                 logger.info("Отмена поиска.");
                 System.out.println("Ну не хочешь искать, ну и не надо...");
@@ -0,0 +1,194 @@
+package frontend.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Генератор нагрузки для {@link LookupServer}.
+ * Открывает несколько соединений, шлёт поисковые запросы пачками
+ * и печатает пропускную способность и задержки.
+ * <p>
+ * Аргументы: хост, порт, число соединений, запросов на соединение, размер пачки.
+ */
+public class LoadGenerator {
+    /**
+     * Начала ФИО и номеров, которыми нагружаем сервер.
+     */
+    private static final String[] NAME_PREFIXES = {"а", "б", "в", "ив", "пет", "сид", "ко", "ми"};
+    private static final String[] PHONE_PREFIXES = {"8", "+7", "8916", "8903", "8495", "+7926"};
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        String host = args.length > 0 ? args[0] : InetAddress.getLoopbackAddress().getHostAddress();
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int requests = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+        int depth = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+
+        Report report = run(host, port, connections, requests, depth);
+        System.out.println(report);
+    }
+
+    /**
+     * Прогнать нагрузку.
+     *
+     * @param host        хост сервера.
+     * @param port        порт сервера.
+     * @param connections число одновременных соединений.
+     * @param requests    число запросов на каждое соединение.
+     * @param depth       сколько запросов отправлять, не дожидаясь ответов.
+     * @return отчёт о прогоне.
+     * @throws IOException          если соединение не удалось.
+     * @throws InterruptedException если прогон прервали.
+     * @throws ExecutionException   если один из клиентов упал.
+     */
+    public static Report run(String host, int port, int connections, int requests, int depth)
+            throws IOException, InterruptedException, ExecutionException {
+        ExecutorService clients = Executors.newFixedThreadPool(connections);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                results.add(clients.submit(client(host, port, requests, Math.max(1, depth))));
+            }
+
+            long[] latencies = new long[connections * requests];
+            int filled = 0;
+            for (var result : results) {
+                long[] part = result.get();
+                System.arraycopy(part, 0, latencies, filled, part.length);
+                filled += part.length;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            return new Report(latencies, elapsed);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Один клиент: шлёт пачку запросов, затем читает пачку ответов.
+     * Задержка запроса считается от отправки пачки до прихода его ответа.
+     */
+    private static Callable<long[]> client(String host, int port, int requests, int depth) {
+        return () -> {
+            long[] latencies = new long[requests];
+            try (Socket socket = new Socket(host, port);
+                 BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 Writer writer = new BufferedWriter(
+                         new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                socket.setTcpNoDelay(true);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                for (int done = 0; done < requests; ) {
+                    int batch = Math.min(depth, requests - done);
+                    long sent = System.nanoTime();
+                    for (int i = 0; i < batch; i++) {
+                        writer.write(random.nextBoolean()
+                                ? LookupProtocol.request(LookupProtocol.FIND_BY_FULL_NAME,
+                                NAME_PREFIXES[random.nextInt(NAME_PREFIXES.length)])
+                                : LookupProtocol.request(LookupProtocol.FIND_BY_PHONE,
+                                PHONE_PREFIXES[random.nextInt(PHONE_PREFIXES.length)]));
+                        writer.write('\n');
+                    }
+                    writer.flush();
+
+                    for (int i = 0; i < batch; i++) {
+                        readResponse(reader);
+                        latencies[done++] = System.nanoTime() - sent;
+                    }
+                }
+
+                writer.write(LookupProtocol.QUIT + "\n");
+                writer.flush();
+            }
+
+            return latencies;
+        };
+    }
+
+    /**
+     * Прочитать один ответ сервера целиком.
+     *
+     * @param reader откуда читать.
+     * @throws IOException если соединение закрылось посреди ответа.
+     */
+    private static void readResponse(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IOException("Сервер закрыл соединение.");
+        }
+
+        if (header.startsWith(LookupProtocol.OK)) {
+            int lines = Integer.parseInt(header.substring(LookupProtocol.OK.length()).trim());
+            for (int i = 0; i < lines; i++) {
+                reader.readLine();
+            }
+        }
+    }
+
+    /**
+     * Итоги прогона нагрузки.
+     */
+    public static class Report {
+        /**
+         * Отсортированные задержки запросов в наносекундах.
+         */
+        private final long[] latencies;
+
+        /**
+         * Длительность всего прогона в наносекундах.
+         */
+        private final long elapsed;
+
+        private Report(long[] latencies, long elapsed) {
+            this.latencies = latencies;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return запросов в секунду.
+         */
+        public double getQps() {
+            return latencies.length * 1e9 / elapsed;
+        }
+
+        /**
+         * @param percentile перцентиль от 0 до 100.
+         * @return задержка на этом перцентиле в микросекундах.
+         */
+        public double getLatencyMicros(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("запросов: %d, QPS: %.0f, p50: %.1f мкс, p99: %.1f мкс, max: %.1f мкс",
+                    latencies.length, getQps(),
+                    getLatencyMicros(50), getLatencyMicros(99), getLatencyMicros(100));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package frontend.server;
+
+import backend.Contact;
+import backend.FormatDataChecker;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Простенький строковый протокол сервера телефонной книги.
+ * <p>
+ * Один запрос - одна строка, поля разделены табуляцией:
+ * <pre>
+ * PING
+ * FIO     начало ФИО
+ * PHONE   начало номера телефона
+ * CALLER  номер звонящего в любом формате
+ * BDAY    дата рождения в формате 2000-12-31
+ * ADD     фамилия, имя, отчество, адрес, телефоны через запятую, дата рождения, е-мэйл
+ * DEL     фамилия, имя, отчество
+ * SUGGEST FIO или PHONE, весь набранный текст, сколько контактов вернуть
+ * QUIT
+ * </pre>
+ * На каждый запрос приходит заголовок {@code OK n}, за которым идут n строк
+ * с контактами, или одна строка {@code ERR причина}.
+ * Ответы приходят строго в порядке запросов, поэтому клиент может
+ * отправлять запросы пачкой, не дожидаясь ответов.
+ * SUGGEST ведёт поиск по мере набора: в рамках соединения каждый запрос,
+ * продолжающий прошлый по тому же полю, сужает уже найденное.
+ */
+public final class LookupProtocol {
+    /**
+     * Разделитель полей в строке.
+     */
+    public static final String SEPARATOR = "\t";
+
+    /**
+     * Разделитель номеров телефонов внутри поля.
+     */
+    public static final String PHONE_SEPARATOR = ",";
+
+    public static final String PING = "PING";
+    public static final String FIND_BY_FULL_NAME = "FIO";
+    public static final String FIND_BY_PHONE = "PHONE";
+    public static final String FIND_BY_BIRTHDAY = "BDAY";
+    public static final String FIND_BY_CALLER_ID = "CALLER";
+    public static final String ADD = "ADD";
+    public static final String DELETE = "DEL";
+    public static final String SUGGEST = "SUGGEST";
+    public static final String QUIT = "QUIT";
+
+    public static final String OK = "OK";
+    public static final String ERROR = "ERR";
+
+    private LookupProtocol() {
+    }
+
+    /**
+     * Разбить строку запроса на команду и аргументы.
+     *
+     * @param line строка запроса.
+     * @return массив, где первый элемент - команда в верхнем регистре.
+     */
+    public static String[] parse(String line) {
+        String[] parts = line.split(SEPARATOR, -1);
+        parts[0] = parts[0].trim().toUpperCase();
+        return parts;
+    }
+
+    /**
+     * Собрать строку запроса.
+     *
+     * @param command   команда.
+     * @param arguments аргументы.
+     * @return строка запроса без перевода строки.
+     */
+    public static String request(String command, String... arguments) {
+        StringBuilder builder = new StringBuilder(command);
+        for (var argument : arguments) {
+            builder.append(SEPARATOR).append(clean(argument));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Представить контакт одной строкой протокола.
+     *
+     * @param contact контакт.
+     * @return строка с полями контакта.
+     */
+    public static String format(Contact contact) {
+        return clean(contact.getSurname()) + SEPARATOR +
+                clean(contact.getName()) + SEPARATOR +
+                clean(contact.getPatronymic()) + SEPARATOR +
+                clean(contact.getAddress()) + SEPARATOR +
+                clean(String.join(PHONE_SEPARATOR, contact.getPhoneNumbers())) + SEPARATOR +
+                contact.getBirthday().map(LocalDate::toString).orElse("") + SEPARATOR +
+                clean(contact.getEmail());
+    }
+
+    /**
+     * Разобрать номера телефонов из поля протокола.
+     *
+     * @param field поле с номерами через запятую.
+     * @return список номеров.
+     */
+    public static List<String> parsePhones(String field) {
+        List<String> phones = new ArrayList<>();
+        for (var phone : Arrays.asList(field.split(PHONE_SEPARATOR))) {
+            phone = FormatDataChecker.makeNotBlank(phone);
+            if (!phone.isEmpty()) {
+                phones.add(phone);
+            }
+        }
+
+        return phones;
+    }
+
+    /**
+     * Убрать из значения символы, ломающие разметку протокола.
+     *
+     * @param value значение поля.
+     * @return значение без табуляций и переводов строк.
+     */
+    private static String clean(String value) {
+        return value == null ? "" : value.replaceAll("[\\t\\r\\n]", " ");
+    }
+}
@@ -0,0 +1,489 @@
+package frontend.server;
+
+import backend.Contact;
+import backend.FormatDataChecker;
+import backend.PhoneBook;
+import backend.SearchField;
+import backend.SearchSession;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервер, раздающий одну телефонную книгу многим клиентам по сети.
+ * Каждое соединение обслуживается своим потоком, но потоков не больше заданного:
+ * лишним соединениям сервер отвечает ошибкой и закрывает их.
+ * Соединение, которое молчит дольше заданного времени, закрывается,
+ * чтобы зависшие и полуоткрытые линии не занимали потоки живых клиентов.
+ * Запросы разбираются по {@link LookupProtocol}.
+ * <p>
+ * Поток на соединение выбран нарочно: запросы короткие, соединений у одной книжечки
+ * немного, а обработчик остаётся простым последовательным кодом. Селектор из NIO
+ * тоже подошёл бы, но с ним разбор строк и сессии поиска пришлось бы держать
+ * в явных буферах каждого соединения.
+ */
+public class LookupServer implements Closeable {
+    /**
+     * Логгер работы сервера.
+     */
+    private final Logger logger = LogManager.getLogger();
+
+    /**
+     * Телефонная книга, которую раздаёт сервер.
+     */
+    private final PhoneBook phoneBook;
+
+    /**
+     * Слушающий сокет.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Потоки для обслуживания соединений.
+     */
+    private final ExecutorService connections;
+
+    /**
+     * Открытые соединения, чтобы закрыть их при остановке сервера.
+     */
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Поток, принимающий новые соединения.
+     */
+    private final Thread acceptor;
+
+    /**
+     * Номер для имён потоков соединений.
+     */
+    private final AtomicInteger connectionNumber = new AtomicInteger();
+
+    /**
+     * Сколько контактов по умолчанию возвращает поиск по мере набора.
+     */
+    private static final int DEFAULT_SUGGESTIONS = 10;
+
+    /**
+     * Сколько соединений по умолчанию обслуживается одновременно.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 256;
+
+    /**
+     * Сколько миллисекунд по умолчанию соединение может молчать, прежде чем его закроют.
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+
+    /**
+     * Сколько миллисекунд соединение может молчать.
+     */
+    private final int idleTimeoutMillis;
+
+    /**
+     * Сколько ждать, пока обслуживание соединений закончится при остановке.
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Конструктор сервера. Сервер сразу начинает принимать соединения.
+     *
+     * @param phoneBook телефонная книга.
+     * @param address   адрес, на котором слушать, null - все адреса.
+     * @param port      порт, 0 - любой свободный.
+     * @throws IOException если не получилось занять порт.
+     */
+    public LookupServer(PhoneBook phoneBook, InetAddress address, int port) throws IOException {
+        this(phoneBook, address, port, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Конструктор сервера. Сервер сразу начинает принимать соединения.
+     *
+     * @param phoneBook      телефонная книга.
+     * @param address        адрес, на котором слушать, null - все адреса.
+     * @param port           порт, 0 - любой свободный.
+     * @param maxConnections сколько соединений обслуживать одновременно.
+     * @throws IOException если не получилось занять порт.
+     */
+    public LookupServer(PhoneBook phoneBook, InetAddress address, int port, int maxConnections)
+            throws IOException {
+        this(phoneBook, address, port, maxConnections, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Конструктор сервера. Сервер сразу начинает принимать соединения.
+     *
+     * @param phoneBook         телефонная книга.
+     * @param address           адрес, на котором слушать, null - все адреса.
+     * @param port              порт, 0 - любой свободный.
+     * @param maxConnections    сколько соединений обслуживать одновременно.
+     * @param idleTimeoutMillis сколько миллисекунд соединение может молчать, прежде чем его закроют.
+     * @throws IOException если не получилось занять порт.
+     */
+    public LookupServer(PhoneBook phoneBook, InetAddress address, int port, int maxConnections,
+                        int idleTimeoutMillis) throws IOException {
+        if (Objects.isNull(phoneBook)) {
+            throw new NullPointerException("Телефонная книга не может быть null!");
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("Соединений должно быть больше нуля!");
+        }
+        if (idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Время простоя должно быть больше нуля!");
+        }
+
+        this.phoneBook = phoneBook;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        serverSocket = new ServerSocket(port, 128, address);
+        connections = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), task -> {
+            Thread thread = new Thread(task, "lookup-connection-" + connectionNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        acceptor = new Thread(this::acceptConnections, "lookup-acceptor");
+        acceptor.start();
+        logger.info("Сервер телефонной книги слушает порт " + getPort());
+    }
+
+    /**
+     * Получить порт, на котором слушает сервер.
+     *
+     * @return порт.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Остановить сервер: перестать принимать соединения, закрыть открытые
+     * и дождаться, пока их потоки закончат начатые запросы.
+     * После этого книгу можно закрывать, ни один запрос в неё уже не придёт.
+     *
+     * @throws IOException при ошибке закрытия сокета.
+     */
+    @Override
+    public void close() throws IOException {
+        logger.info("Сервер телефонной книги останавливается.");
+        serverSocket.close();
+        try {
+            acceptor.join();
+            for (var client : clients) {
+                closeQuietly(client);
+            }
+            connections.shutdown();
+            if (!connections.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Не все соединения закрылись за " + SHUTDOWN_TIMEOUT_SECONDS + " с.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Принимать соединения, пока сокет открыт.
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(idleTimeoutMillis);
+                clients.add(socket);
+                try {
+                    connections.execute(() -> serve(socket));
+                } catch (RejectedExecutionException ex) {
+                    logger.warn("Слишком много соединений, новое отклонено.");
+                    reject(socket);
+                }
+            } catch (SocketException ex) {
+                logger.info("Приём соединений прекращён.");
+            } catch (IOException ex) {
+                logger.warn("Не получилось принять соединение: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Обслужить одно соединение.
+     * Ответ сбрасывается в сокет только когда во входном буфере
+     * не осталось запросов, так что пачка запросов уходит одной пачкой ответов.
+     *
+     * @param socket сокет клиента.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            Map<SearchField, SearchSession> sessions = new EnumMap<>(SearchField.class);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!handle(line, writer, sessions)) {
+                    break;
+                }
+
+                if (!reader.ready()) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } catch (SocketTimeoutException ex) {
+            logger.info("Соединение молчало дольше " + idleTimeoutMillis + " мс и закрыто.");
+        } catch (IOException ex) {
+            if (!serverSocket.isClosed()) {
+                logger.warn("Соединение оборвалось: " + ex.getMessage());
+            }
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    /**
+     * Ответить ошибкой соединению, которое некому обслуживать, и закрыть его.
+     *
+     * @param socket сокет клиента.
+     */
+    private void reject(Socket socket) {
+        try {
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            error(writer, "сервер перегружен, попробуйте позже");
+            writer.flush();
+        } catch (IOException ex) {
+            logger.warn("Не получилось отказать соединению: " + ex.getMessage());
+        } finally {
+            clients.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            logger.warn("Не получилось закрыть соединение: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Обработать один запрос и записать ответ.
+     *
+     * @param line     строка запроса.
+     * @param writer   куда писать ответ.
+     * @param sessions сессии поиска по мере набора этого соединения.
+     * @return продолжать ли работу с соединением.
+     * @throws IOException при ошибке записи.
+     */
+    private boolean handle(String line, Writer writer, Map<SearchField, SearchSession> sessions)
+            throws IOException {
+        String[] request = LookupProtocol.parse(line);
+        try {
+            switch (request[0]) {
+                case LookupProtocol.PING:
+                    answer(writer, Collections.emptyList());
+                    break;
+                case LookupProtocol.FIND_BY_FULL_NAME:
+                    answer(writer, phoneBook.findByFullName(argument(request, 1)));
+                    break;
+                case LookupProtocol.FIND_BY_PHONE:
+                    answer(writer, phoneBook.findByPhoneNumber(argument(request, 1)));
+                    break;
+                case LookupProtocol.FIND_BY_CALLER_ID:
+                    answer(writer, phoneBook.findByCallerId(argument(request, 1)));
+                    break;
+                case LookupProtocol.FIND_BY_BIRTHDAY:
+                    answer(writer, phoneBook.findByBirthday(LocalDate.parse(argument(request, 1))));
+                    break;
+                case LookupProtocol.ADD:
+                    add(request, writer);
+                    break;
+                case LookupProtocol.DELETE:
+                    delete(request, writer);
+                    break;
+                case LookupProtocol.SUGGEST:
+                    suggest(request, writer, sessions);
+                    break;
+                case LookupProtocol.QUIT:
+                    answer(writer, Collections.emptyList());
+                    return false;
+                case "":
+                    break;
+                default:
+                    error(writer, "неизвестная команда " + request[0]);
+            }
+        } catch (DateTimeParseException ex) {
+            error(writer, "дата должна быть в формате ГГГГ-ММ-ДД");
+        } catch (UnsupportedOperationException ex) {
+            error(writer, "книжечка открыта только для чтения");
+        }
+
+        return true;
+    }
+
+    /**
+     * Добавить контакт из запроса.
+     *
+     * @param request разобранный запрос.
+     * @param writer  куда писать ответ.
+     * @throws IOException при ошибке записи или сохранения книги.
+     */
+    private void add(String[] request, Writer writer) throws IOException {
+        String surname = argument(request, 1);
+        String name = argument(request, 2);
+        String patronymic = argument(request, 3);
+        List<String> phones = LookupProtocol.parsePhones(argument(request, 5));
+        String birthday = FormatDataChecker.makeNotBlank(argument(request, 6));
+        String email = FormatDataChecker.makeNotBlank(argument(request, 7));
+
+        for (var phone : phones) {
+            if (!FormatDataChecker.isPhoneNumber(phone)) {
+                error(writer, "неверный номер телефона " + phone);
+                return;
+            }
+        }
+
+        if (!email.isEmpty() && !FormatDataChecker.isEmail(email)) {
+            error(writer, "неверный е-мэйл " + email);
+            return;
+        }
+
+        if (!phoneBook.addContact(name, surname, patronymic, argument(request, 4), phones,
+                birthday.isEmpty() ? null : LocalDate.parse(birthday), email)) {
+            error(writer, "пустое ФИО или дубликат");
+            return;
+        }
+
+        answer(writer, phoneBook.findContact(name, surname, patronymic)
+                .map(Collections::singletonList)
+                .orElse(Collections.emptyList()));
+    }
+
+    /**
+     * Удалить контакт по ФИО из запроса.
+     *
+     * @param request разобранный запрос.
+     * @param writer  куда писать ответ.
+     * @throws IOException при ошибке записи или сохранения книги.
+     */
+    private void delete(String[] request, Writer writer) throws IOException {
+        Optional<Contact> hater = phoneBook.findContact(
+                argument(request, 2), argument(request, 1), argument(request, 3));
+        if (hater.isEmpty()) {
+            error(writer, "контакт не найден");
+            return;
+        }
+
+        phoneBook.deleteContact(hater.get());
+        answer(writer, Collections.singletonList(hater.get()));
+    }
+
+    /**
+     * Продолжить поиск по мере набора.
+     *
+     * @param request  разобранный запрос.
+     * @param writer   куда писать ответ.
+     * @param sessions сессии поиска этого соединения.
+     * @throws IOException при ошибке записи.
+     */
+    private void suggest(String[] request, Writer writer, Map<SearchField, SearchSession> sessions)
+            throws IOException {
+        SearchField field;
+        switch (argument(request, 1).trim().toUpperCase()) {
+            case LookupProtocol.FIND_BY_FULL_NAME:
+                field = SearchField.FULL_NAME;
+                break;
+            case LookupProtocol.FIND_BY_PHONE:
+                field = SearchField.PHONE_NUMBER;
+                break;
+            default:
+                error(writer, "искать по мере набора можно только по FIO или PHONE");
+                return;
+        }
+
+        int limit;
+        try {
+            String text = argument(request, 3).trim();
+            limit = text.isEmpty() ? DEFAULT_SUGGESTIONS : Integer.parseInt(text);
+        } catch (NumberFormatException ex) {
+            error(writer, "число контактов должно быть числом");
+            return;
+        }
+        if (limit < 1) {
+            error(writer, "число контактов должно быть больше нуля");
+            return;
+        }
+
+        SearchSession session = sessions.get(field);
+        if (Objects.isNull(session) || session.getLimit() != limit) {
+            session = phoneBook.openSearchSession(field, limit);
+            sessions.put(field, session);
+        }
+        answer(writer, session.update(argument(request, 2)));
+    }
+
+    /**
+     * Записать успешный ответ.
+     *
+     * @param writer   куда писать.
+     * @param contacts найденные контакты.
+     * @throws IOException при ошибке записи.
+     */
+    private void answer(Writer writer, List<Contact> contacts) throws IOException {
+        writer.write(LookupProtocol.OK + " " + contacts.size() + "\n");
+        for (var contact : contacts) {
+            writer.write(LookupProtocol.format(contact));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Записать ответ с ошибкой.
+     *
+     * @param writer  куда писать.
+     * @param message причина ошибки.
+     * @throws IOException при ошибке записи.
+     */
+    private void error(Writer writer, String message) throws IOException {
+        writer.write(LookupProtocol.ERROR + " " + message + "\n");
+    }
+
+    /**
+     * Получить аргумент запроса или пустую строку, если его нет.
+     *
+     * @param request разобранный запрос.
+     * @param index   номер аргумента.
+     * @return аргумент.
+     */
+    private static String argument(String[] request, int index) {
+        return index < request.length ? request[index] : "";
+    }
+}
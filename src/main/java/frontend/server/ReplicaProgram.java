@@ -0,0 +1,51 @@
+package frontend.server;
+
+import backend.PhoneBookReplica;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+
+/**
+ * Запуск реплики телефонной книги в режиме сервера только для чтения.
+ * Реплика дочитывает журнал изменений основной книги, запущенной
+ * через {@link ServerProgram} со словом {@code log}.
+ * Аргументы: порт (по умолчанию 7071), путь к книге, число сегментов
+ * и как часто проверять журнал в миллисекундах.
+ */
+public class ReplicaProgram {
+    private static final Logger logger = LogManager.getLogger();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7071;
+        String path = args.length > 1 ? args[1] : "../../../phonebook.json";
+        int shards = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        long interval = args.length > 3 ? Long.parseLong(args[3]) : 100;
+
+        PhoneBookReplica replica;
+        try {
+            replica = new PhoneBookReplica(path, shards);
+        } catch (IOException ex) {
+            System.out.println("К сожалению, " +
+                    "ошибки ввода-вывода при работе с файлами " +
+                    "не позволяют нам открыть реплику книжечки " + path);
+            return;
+        }
+
+        replica.start(interval);
+        LookupServer server = new LookupServer(replica.getPhoneBook(), null, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                replica.close();
+            } catch (IOException ignored) {
+            }
+        }));
+        System.out.println("Реплика книжечки раздаётся на порту " + server.getPort() + ". Ctrl+C - остановить.");
+
+        while (true) {
+            Thread.sleep(5000);
+            logger.info("Отставание реплики: " + replica.getLag());
+        }
+    }
+}
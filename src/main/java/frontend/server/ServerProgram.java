@@ -0,0 +1,43 @@
+package frontend.server;
+
+import backend.PhoneBook;
+
+import java.io.IOException;
+
+/**
+ * Запуск телефонной книги в режиме сервера.
+ * Аргументы: порт (по умолчанию 7070), путь к книге, число сегментов
+ * и слово {@code log}, если нужно вести журнал изменений для реплик.
+ */
+public class ServerProgram {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        String path = args.length > 1 ? args[1] : "../../../phonebook.json";
+        int shards = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        boolean mutationLog = args.length > 3 && args[3].equalsIgnoreCase("log");
+
+        PhoneBook phoneBook;
+        try {
+            phoneBook = new PhoneBook(path, shards);
+            if (mutationLog) {
+                phoneBook.enableMutationLog();
+            }
+        } catch (IOException ex) {
+            System.out.println("К сожалению, " +
+                    "ошибки ввода-вывода при работе с файлами " +
+                    "не позволяют нам открыть книжечку " + path);
+            return;
+        }
+
+        LookupServer server = new LookupServer(phoneBook, null, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                phoneBook.close();
+            } catch (IOException ignored) {
+            }
+        }));
+        System.out.println("Книжечка раздаётся на порту " + server.getPort() + ". Ctrl+C - остановить.");
+        Thread.currentThread().join();
+    }
+}
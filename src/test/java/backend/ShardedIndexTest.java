@@ -0,0 +1,100 @@
+package backend;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Сегментированная книжечка, которую открывают заново с правками между открытиями:
+ * индексы из файла рядом с ней должны находить те же контакты, что и построенные с нуля.
+ */
+public class ShardedIndexTest {
+    private static final int SHARDS = 4;
+    private static final int CONTACTS = 60;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String path;
+
+    @Before
+    public void createBook() throws IOException {
+        path = new File(folder.getRoot(), "book.json").getPath();
+        PhoneBook book = new PhoneBook(path, SHARDS);
+        for (int i = 0; i < CONTACTS; i++) {
+            book.addContact("Имя" + i, "Фамилия" + i, "", "", List.of(phone(i)), null, "");
+        }
+        book.close();
+    }
+
+    @Test
+    public void reopenedBookFindsEveryContact() throws IOException {
+        assertSidecarFresh();
+        PhoneBook book = new PhoneBook(path, SHARDS);
+        for (int i = 0; i < CONTACTS; i++) {
+            assertFound(book, i);
+        }
+        book.close();
+    }
+
+    @Test
+    public void reopenedBookFindsContactsAfterEdits() throws IOException {
+        PhoneBook book = new PhoneBook(path, SHARDS);
+        for (int i = 0; i < CONTACTS; i += 7) {
+            book.deleteContact(book.findContact("Имя" + i, "Фамилия" + i, "").orElseThrow());
+        }
+        book.addContact("Имя0", "Фамилия0", "", "", List.of(phone(0)), null, "");
+        book.addContact("Новое", "Имя", "", "", List.of(phone(CONTACTS)), null, "");
+        book.close();
+
+        for (int round = 0; round < 2; round++) {
+            assertSidecarFresh();
+            book = new PhoneBook(path, SHARDS);
+            for (int i = 0; i < CONTACTS; i++) {
+                if (i % 7 == 0 && i != 0) {
+                    assertTrue(book.findByFullName("фамилия" + i + "имя" + i).isEmpty());
+                    assertTrue(book.findByPhoneNumber(phone(i)).isEmpty());
+                } else {
+                    assertFound(book, i);
+                }
+            }
+
+            List<Contact> added = book.findByPhoneNumber(phone(CONTACTS));
+            assertEquals(1, added.size());
+            assertEquals("Новое", added.get(0).getName());
+            book.close();
+        }
+    }
+
+    /**
+     * Индексы в файле построены для текущего снимка, и при открытии их не придётся строить заново.
+     */
+    private void assertSidecarFresh() throws IOException {
+        ShardedStorage storage = new ShardedStorage(new File(path), SHARDS, true);
+        assertNotNull(ContactIndex.read(ContactIndex.fileFor(new File(path)),
+                ContactIndex.stamp(storage.files()), storage.load()));
+    }
+
+    private static void assertFound(PhoneBook book, int i) {
+        List<Contact> byName = book.findByFullName("фамилия" + i + "имя" + i);
+        assertEquals(1, byName.size());
+        assertEquals("Фамилия" + i, byName.get(0).getSurname());
+
+        List<Contact> byPhone = book.findByPhoneNumber(phone(i));
+        assertEquals(1, byPhone.size());
+        assertEquals("Фамилия" + i, byPhone.get(0).getSurname());
+    }
+
+    private static String phone(int i) {
+        return "8916" + (1_000_000 + i);
+    }
+}